@@ -0,0 +1,192 @@
+/**
+ * @file AggregatedDataSource.java
+ *
+ * @brief
+ * Loads pre-aggregated data for the visible range of a Graph from the
+ * GraphDataServlet.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.client;
+
+import java.util.Date;
+
+import com.chap.links.client.events.RangeChangedHandler;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsonUtils;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.http.client.URL;
+
+/**
+ * The AggregatedDataSource loads the data of one or multiple series for the
+ * visible range of a Graph from the GraphDataServlet. The data is aggregated
+ * on the server into one bucket per pixel, and is reloaded each time the
+ * visible range is changed by the user (on the rangechanged event).
+ *
+ * Each series is drawn as the envelope of the minimum and maximum value of
+ * each bucket, so peaks in the data remain visible. Optionally, the average
+ * value per bucket is drawn as a separate line.
+ *
+ * Example usage:
+ *
+ * <pre>
+ * Graph graph = new Graph(JavaScriptObject.createArray(), options);
+ * RootPanel.get().add(graph);
+ * AggregatedDataSource source = new AggregatedDataSource(graph,
+ * 		GWT.getModuleBaseURL() + &quot;data&quot;, &quot;temperature&quot;, &quot;pressure&quot;);
+ * source.bind();
+ * </pre>
+ */
+public class AggregatedDataSource {
+	private final Graph graph;
+	private final String url;
+	private final String[] series;
+	private boolean showAverage = false;
+	private Request request = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param graph
+	 *            The graph where the data is drawn
+	 * @param url
+	 *            The url of the GraphDataServlet, for example
+	 *            GWT.getModuleBaseURL() + "data"
+	 * @param series
+	 *            The ids of the series to be loaded
+	 */
+	public AggregatedDataSource(Graph graph, String url, String... series) {
+		this.graph = graph;
+		this.url = url;
+		this.series = series;
+	}
+
+	/**
+	 * Draw the average value per bucket as a separate line for each series
+	 *
+	 * @param showAverage
+	 *            default: false
+	 */
+	public void setShowAverage(boolean showAverage) {
+		this.showAverage = showAverage;
+	}
+
+	/**
+	 * Reload the data each time the visible range of the graph is changed
+	 * by the user, and load the data for the current visible range.
+	 */
+	public void bind() {
+		graph.addRangeChangedHandler(new RangeChangedHandler() {
+			@Override
+			public void onRangeChanged(RangeChangedEvent event) {
+				load(event.getStart(), event.getEnd());
+			}
+		});
+
+		Graph.DateRange range = graph.getVisibleChartRange();
+		load(range.getStart(), range.getEnd());
+	}
+
+	/**
+	 * Load the data for given range, and draw it in the graph. A pending
+	 * request for a previous range is cancelled.
+	 *
+	 * @param start
+	 * @param end
+	 */
+	public void load(Date start, Date end) {
+		if (request != null && request.isPending()) {
+			request.cancel();
+		}
+
+		int pixelWidth = Math.max(graph.getOffsetWidth(), 1);
+		StringBuilder query = new StringBuilder(url);
+		query.append(url.indexOf('?') == -1 ? '?' : '&');
+		query.append("start=").append((long) start.getTime());
+		query.append("&end=").append((long) end.getTime());
+		query.append("&pixelWidth=").append(pixelWidth);
+		for (String id : series) {
+			query.append("&series=").append(URL.encodeQueryString(id));
+		}
+
+		RequestBuilder builder = new RequestBuilder(RequestBuilder.GET,
+				query.toString());
+		try {
+			request = builder.sendRequest(null, new RequestCallback() {
+				@Override
+				public void onResponseReceived(Request request,
+						Response response) {
+					if (response.getStatusCode() == Response.SC_OK) {
+						JavaScriptObject json = JsonUtils.safeEval(response
+								.getText());
+						graph.draw(toGraphData(json, showAverage), null);
+					} else {
+						GWT.log("Failed to load graph data: "
+								+ response.getStatusCode() + " "
+								+ response.getStatusText());
+					}
+				}
+
+				@Override
+				public void onError(Request request, Throwable exception) {
+					GWT.log("Failed to load graph data", exception);
+				}
+			});
+		} catch (RequestException e) {
+			GWT.log("Failed to load graph data", e);
+		}
+	}
+
+	/**
+	 * Convert the response of the GraphDataServlet into data for the Graph.
+	 *
+	 * @param json
+	 *            The response, an array with the buckets per series
+	 * @param showAverage
+	 *            If true, an extra line with the average values is created for
+	 *            each series
+	 * @return data An array with the data for the Graph
+	 */
+	private static native JavaScriptObject toGraphData(JavaScriptObject json,
+			boolean showAverage) /*-{
+		var data = [];
+		for (var i = 0; i < json.length; i++) {
+			var buckets = json[i].buckets;
+			var envelope = [];
+			var average = [];
+			for (var j = 0; j < buckets.length; j++) {
+				// bucket: [start, end, min, max, avg, count]
+				var bucket = buckets[j];
+				var date = new $wnd.Date(bucket[0]);
+				envelope.push({"date": date, "value": bucket[2]});
+				envelope.push({"date": date, "value": bucket[3]});
+				average.push({"date": date, "value": bucket[4]});
+			}
+
+			data.push({"label": json[i].label, "data": envelope});
+			if (showAverage) {
+				data.push({"label": json[i].label + " (avg)", "data": average});
+			}
+		}
+		return data;
+	}-*/;
+}
@@ -47,6 +47,7 @@ import com.chap.links.client.events.RangeChangeHandler;
 import com.chap.links.client.events.RangeChangedHandler;
 import com.chap.links.client.events.ReadyHandler;
 import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayNumber;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.visualization.client.AbstractDataTable;
 import com.google.gwt.visualization.client.AbstractDrawOptions;
@@ -94,6 +95,31 @@ public class Graph extends Visualization<Graph.Options> {
 			this.autoDataStep = autoDataStep;
 		}-*/;
 
+		/**
+		 * Set the maximum number of data points of a streamed series. Data
+		 * points appended via Graph.appendPoints are stored in a ring buffer
+		 * with this capacity. When the buffer is full, the oldest data points
+		 * are removed.
+		 * 
+		 * @param capacity
+		 *            default: 10000
+		 */
+		public final native void setStreamCapacity(int capacity) /*-{
+			this.streamCapacity = capacity;
+		}-*/;
+
+		/**
+		 * If streamAutoScroll is set to true (default), the visible range is
+		 * moved along with data appended via Graph.appendPoints, as long as
+		 * the newest data point is visible.
+		 * 
+		 * @param autoScroll
+		 *            default: true
+		 */
+		public final native void setStreamAutoScroll(boolean autoScroll) /*-{
+			this.streamAutoScroll = autoScroll;
+		}-*/;
+
 		/**
 		 * Set the width for the chart in pixels.
 		 * 
@@ -336,6 +362,17 @@ public class Graph extends Visualization<Graph.Options> {
 			this.vMax = max;
 		}-*/;
 
+		/**
+		 * If true, the vertical range is automatically fitted to the data
+		 * inside the visible range when the graph is moved or zoomed.
+		 * 
+		 * @param autoScale
+		 *            default: false
+		 */
+		public final native void setVerticalAutoScale(boolean autoScale) /*-{
+			this.vAutoScale = autoScale;
+		}-*/;
+
 		/**
 		 * If true, the Graph can be moved. When the graph moved, the
 		 * rangechange events are fired.
@@ -705,6 +742,7 @@ public class Graph extends Visualization<Graph.Options> {
 
 	private AbstractDataTable dataTable = null;
 	private JavaScriptObject dataArray = null;
+	private String dataSetId = null;
 	private Options options = null;
 
 	/**
@@ -817,6 +855,62 @@ public class Graph extends Visualization<Graph.Options> {
 		this.options = options;
 	}
 
+	/**
+	 * Constructor
+	 * 
+	 * @param dataSetId
+	 *            The id of a shared data set, registered via
+	 *            Graph.registerDataSet
+	 * @param options
+	 *            A name/value map containing settings for the graph. See the
+	 *            class Graph.Options for all available options
+	 */
+	public Graph(String dataSetId, Options options) {
+		super();
+		this.dataSetId = dataSetId;
+		this.options = options;
+	}
+
+	/**
+	 * Register a shared data set. Multiple graphs can display the data set
+	 * via its id, while the data is parsed and indexed only once. The data
+	 * set is reference counted: it is removed when the registration is
+	 * released via releaseDataSet, and no graph displays it anymore.
+	 * 
+	 * @param id
+	 *            An id for the data set
+	 * @param data
+	 *            The data, as a Javascript Array (see draw)
+	 */
+	public static native void registerDataSet(String id, JavaScriptObject data) /*-{
+		$wnd.links.Graph.registerDataSet(id, data);
+	}-*/;
+
+	/**
+	 * Register a shared data set. Multiple graphs can display the data set
+	 * via its id, while the data is parsed and indexed only once. The data
+	 * set is reference counted: it is removed when the registration is
+	 * released via releaseDataSet, and no graph displays it anymore.
+	 * 
+	 * @param id
+	 *            An id for the data set
+	 * @param data
+	 *            A google visualisation datatable containing the data
+	 */
+	public static native void registerDataSet(String id, AbstractDataTable data) /*-{
+		$wnd.links.Graph.registerDataSet(id, data);
+	}-*/;
+
+	/**
+	 * Release the registration of a shared data set
+	 * 
+	 * @param id
+	 *            The id of the data set
+	 */
+	public static native void releaseDataSet(String id) /*-{
+		$wnd.links.Graph.releaseDataSet(id);
+	}-*/;
+
 	/**
 	 * Redraw the Graph
 	 */
@@ -1168,6 +1262,51 @@ public class Graph extends Visualization<Graph.Options> {
 		jso.setScale(jsScale, step);
 	}-*/;
 
+	/**
+	 * Append data points to a series, for example for live data. The series
+	 * is stored in a ring buffer with a fixed capacity (see
+	 * Options.setStreamCapacity), and only the new segment of the line is
+	 * drawn. Only series of type 'line' can be streamed.
+	 * 
+	 * @param series
+	 *            The series number (zero based). When the series does not
+	 *            exist, it is created.
+	 * @param dates
+	 *            The timestamps of the data points in milliseconds, in
+	 *            chronological order
+	 * @param values
+	 *            The values of the data points, with the same length as
+	 *            dates. A value Double.NaN leaves a gap in the line.
+	 */
+	public void appendPoints(int series, double[] dates, double[] values) {
+		JsArrayNumber jsDates = JavaScriptObject.createArray().cast();
+		JsArrayNumber jsValues = JavaScriptObject.createArray().cast();
+		for (int i = 0; i < dates.length; i++) {
+			jsDates.push(dates[i]);
+		}
+		for (int i = 0; i < values.length; i++) {
+			jsValues.push(values[i]);
+		}
+		nativeAppendPoints(getJso(), series, jsDates, jsValues);
+	}
+
+	/**
+	 * Append data points to a series
+	 * 
+	 * @param jso
+	 *            The javascriptobject pointing to the js instance of the Graph
+	 * @param series
+	 *            The series number (zero based)
+	 * @param dates
+	 *            The timestamps of the data points in milliseconds
+	 * @param values
+	 *            The values of the data points
+	 */
+	private native void nativeAppendPoints(JavaScriptObject jso, int series,
+			JsArrayNumber dates, JsArrayNumber values) /*-{
+		jso.appendPoints(series, dates, values);
+	}-*/;
+
 	/**
 	 * Draws the visualization providing a Javascript array with data
 	 * 
@@ -1227,6 +1366,34 @@ public class Graph extends Visualization<Graph.Options> {
 		jso.draw(data, options);
 	}-*/;
 
+	/**
+	 * Draws the visualization with a shared data set
+	 * 
+	 * @param dataSetId
+	 *            The id of a shared data set, registered via
+	 *            Graph.registerDataSet
+	 * @param options
+	 *            The options for drawing this visualization.
+	 */
+	public void draw(String dataSetId, Options options) {
+		nativeDraw(getJso(), dataSetId, options);
+	}
+
+	/**
+	 * Draws the visualization with a shared data set
+	 * 
+	 * @param jso
+	 *            The javascriptobject pointing to the js instance of the Graph
+	 * @param dataSetId
+	 *            The id of the data set
+	 * @param options
+	 *            The options for drawing this visualization.
+	 */
+	private native void nativeDraw(JavaScriptObject jso, String dataSetId,
+			Options options) /*-{
+		jso.draw(dataSetId, options);
+	}-*/;
+
 	@Override
 	protected native JavaScriptObject createJso(Element parent) /*-{
 		var jso = new $wnd.links.Graph(parent);
@@ -1240,10 +1407,13 @@ public class Graph extends Visualization<Graph.Options> {
 				draw(dataTable, options);
 			} else if (dataArray != null) {
 				draw(dataArray, options);
+			} else if (dataSetId != null) {
+				draw(dataSetId, options);
 			}
 
 			dataTable = null;
 			dataArray = null;
+			dataSetId = null;
 			options = null;
 		}
 	}
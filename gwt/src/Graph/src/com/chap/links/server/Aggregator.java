@@ -0,0 +1,192 @@
+/**
+ * @file Aggregator.java
+ *
+ * @brief
+ * Aggregates a time series into buckets, for example one bucket per pixel.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The Aggregator divides a time interval into a number of equally sized
+ * buckets, and calculates the minimum, maximum, and average value of the data
+ * points of a series in each bucket.
+ *
+ * The buckets are calculated in parallel: the range of buckets is split in
+ * chunks via a fork-join pool, until a chunk contains less than THRESHOLD
+ * data points.
+ */
+public class Aggregator {
+	/** minimum number of data points for a chunk to be split further */
+	public static final int THRESHOLD = 65536;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor. Creates an aggregator using a pool with one thread per
+	 * available processor.
+	 */
+	public Aggregator() {
+		this(new ForkJoinPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 *            The fork-join pool used for the aggregation
+	 */
+	public Aggregator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Aggregate the data points of a series within a time interval.
+	 *
+	 * @param series
+	 *            The time series
+	 * @param start
+	 *            Start of the interval in milliseconds
+	 * @param end
+	 *            End of the interval in milliseconds (excluded)
+	 * @param count
+	 *            The number of buckets, for example the width of the graph in
+	 *            pixels
+	 * @return buckets An array with the buckets in chronological order.
+	 *         Buckets without data points are null.
+	 */
+	public Bucket[] aggregate(TimeSeries series, long start, long end,
+			int count) {
+		if (end <= start) {
+			throw new IllegalArgumentException("End must be larger than start");
+		}
+		if (count <= 0) {
+			throw new IllegalArgumentException("Count must be larger than zero");
+		}
+
+		Bucket[] buckets = new Bucket[count];
+		pool.invoke(new AggregateTask(series, start, end, buckets, 0, count));
+		return buckets;
+	}
+
+	/**
+	 * Shut down the fork-join pool of this aggregator
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Task calculating a range of buckets
+	 */
+	private static class AggregateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final TimeSeries series;
+		private final long start;
+		private final long end;
+		private final double width;
+		private final Bucket[] buckets;
+		private final int from;
+		private final int to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param series
+		 *            The time series
+		 * @param start
+		 *            Start of the interval of all buckets
+		 * @param end
+		 *            End of the interval of all buckets
+		 * @param buckets
+		 *            Array where the calculated buckets are stored
+		 * @param from
+		 *            Index of the first bucket to be calculated
+		 * @param to
+		 *            Index of the last bucket to be calculated (excluded)
+		 */
+		AggregateTask(TimeSeries series, long start, long end,
+				Bucket[] buckets, int from, int to) {
+			this.series = series;
+			this.start = start;
+			this.end = end;
+			this.width = (double) (end - start) / buckets.length;
+			this.buckets = buckets;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Get the start of a bucket
+		 *
+		 * @param index
+		 * @return start in milliseconds
+		 */
+		private long getBucketStart(int index) {
+			if (index >= buckets.length) {
+				return end;
+			}
+			return start + (long) Math.floor(index * width);
+		}
+
+		@Override
+		protected void compute() {
+			int firstRow = series.indexOf(getBucketStart(from));
+			int lastRow = series.indexOf(getBucketStart(to));
+
+			if (to - from > 1 && lastRow - firstRow > THRESHOLD) {
+				// split in two halves
+				int middle = (from + to) >>> 1;
+				invokeAll(
+						new AggregateTask(series, start, end, buckets, from, middle),
+						new AggregateTask(series, start, end, buckets, middle, to));
+				return;
+			}
+
+			int row = firstRow;
+			for (int i = from; i < to; i++) {
+				long bucketStart = getBucketStart(i);
+				long bucketEnd = getBucketStart(i + 1);
+
+				int count = 0;
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				double sum = 0;
+				while (row < lastRow && series.getDate(row) < bucketEnd) {
+					double value = series.getValue(row);
+					if (!Double.isNaN(value)) {
+						count++;
+						min = Math.min(min, value);
+						max = Math.max(max, value);
+						sum += value;
+					}
+					row++;
+				}
+
+				if (count > 0) {
+					buckets[i] = new Bucket(bucketStart, bucketEnd, count, min,
+							max, sum / count);
+				}
+			}
+		}
+	}
+}
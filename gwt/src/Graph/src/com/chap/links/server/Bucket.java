@@ -0,0 +1,87 @@
+/**
+ * @file Bucket.java
+ *
+ * @brief
+ * The aggregated data points of a time interval.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+/**
+ * A Bucket contains the minimum, maximum, and average value of the data
+ * points of a series within a time interval, typically the width of one
+ * pixel on screen.
+ */
+public class Bucket {
+	private final long start;
+	private final long end;
+	private final int count;
+	private final double min;
+	private final double max;
+	private final double avg;
+
+	/**
+	 * Constructor
+	 *
+	 * @param start
+	 *            Start of the interval in milliseconds
+	 * @param end
+	 *            End of the interval in milliseconds (excluded)
+	 * @param count
+	 *            The number of data points with a value in the interval
+	 * @param min
+	 *            The minimum value
+	 * @param max
+	 *            The maximum value
+	 * @param avg
+	 *            The average value
+	 */
+	public Bucket(long start, long end, int count, double min, double max,
+			double avg) {
+		this.start = start;
+		this.end = end;
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.avg = avg;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getMin() {
+		return min;
+	}
+
+	public double getMax() {
+		return max;
+	}
+
+	public double getAvg() {
+		return avg;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * @file GraphDataServlet.java
+ *
+ * @brief
+ * Servlet serving pre-aggregated data of a time range to the Graph.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The GraphDataServlet returns the data of one or multiple series from the
+ * TimeSeriesStore, aggregated into one bucket per pixel. This way the browser
+ * never receives more data points than it can display.
+ *
+ * Request parameters:
+ * <ul>
+ * <li>series: the id of a series. Can be provided multiple times.</li>
+ * <li>start: start of the time range in milliseconds</li>
+ * <li>end: end of the time range in milliseconds</li>
+ * <li>pixelWidth: the number of buckets, typically the width of the graph in
+ * pixels</li>
+ * </ul>
+ *
+ * The response is a JSON array with an object per series, containing the
+ * label and an array with buckets. Each bucket is an array
+ * [start, end, min, max, avg, count], empty buckets are left out:
+ *
+ * <pre>
+ * [{"label": "temperature", "buckets": [[1281823200000, 1281823260000, 12.1, 12.9, 12.5, 60], ...]}]
+ * </pre>
+ */
+public class GraphDataServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	/** maximum number of buckets per series */
+	public static final int MAX_PIXEL_WIDTH = 10000;
+
+	private Aggregator aggregator = null;
+
+	@Override
+	public void init() {
+		aggregator = new Aggregator();
+	}
+
+	@Override
+	public void destroy() {
+		if (aggregator != null) {
+			aggregator.shutdown();
+			aggregator = null;
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+			throws IOException {
+		String[] ids = req.getParameterValues("series");
+		long start;
+		long end;
+		int pixelWidth;
+		try {
+			start = Long.parseLong(req.getParameter("start"));
+			end = Long.parseLong(req.getParameter("end"));
+			pixelWidth = Integer.parseInt(req.getParameter("pixelWidth"));
+		} catch (NumberFormatException e) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+					"Parameters start, end, and pixelWidth must be numbers");
+			return;
+		}
+		if (ids == null || ids.length == 0) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+					"Parameter series missing");
+			return;
+		}
+		if (end <= start) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+					"Parameter end must be larger than start");
+			return;
+		}
+		if (pixelWidth <= 0 || pixelWidth > MAX_PIXEL_WIDTH) {
+			resp.sendError(HttpServletResponse.SC_BAD_REQUEST,
+					"Parameter pixelWidth must be between 1 and " + MAX_PIXEL_WIDTH);
+			return;
+		}
+
+		TimeSeriesStore store = TimeSeriesStore.getInstance();
+		TimeSeries[] series = new TimeSeries[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			series[i] = store.get(ids[i]);
+			if (series[i] == null) {
+				resp.sendError(HttpServletResponse.SC_NOT_FOUND,
+						"Series \"" + ids[i] + "\" not found");
+				return;
+			}
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append('[');
+		for (int i = 0; i < ids.length; i++) {
+			Bucket[] buckets = aggregator.aggregate(series[i], start, end,
+					pixelWidth);
+
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"label\":");
+			appendString(json, ids[i]);
+			json.append(",\"buckets\":[");
+			boolean first = true;
+			for (Bucket bucket : buckets) {
+				if (bucket != null) {
+					if (!first) {
+						json.append(',');
+					}
+					json.append('[')
+						.append(bucket.getStart()).append(',')
+						.append(bucket.getEnd()).append(',')
+						.append(bucket.getMin()).append(',')
+						.append(bucket.getMax()).append(',')
+						.append(bucket.getAvg()).append(',')
+						.append(bucket.getCount())
+						.append(']');
+					first = false;
+				}
+			}
+			json.append("]}");
+		}
+		json.append(']');
+
+		resp.setContentType("application/json");
+		resp.setCharacterEncoding("UTF-8");
+		PrintWriter writer = resp.getWriter();
+		writer.write(json.toString());
+		writer.flush();
+	}
+
+	/**
+	 * Append a string to a JSON string, surrounded by quotes and escaped
+	 *
+	 * @param json
+	 * @param str
+	 */
+	private static void appendString(StringBuilder json, String str) {
+		json.append('"');
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+			case '"':
+				json.append("\\\"");
+				break;
+			case '\\':
+				json.append("\\\\");
+				break;
+			case '\n':
+				json.append("\\n");
+				break;
+			case '\r':
+				json.append("\\r");
+				break;
+			case '\t':
+				json.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					json.append(String.format("\\u%04x", (int) c));
+				} else {
+					json.append(c);
+				}
+			}
+		}
+		json.append('"');
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * @file TimeSeries.java
+ *
+ * @brief
+ * A series of data points sorted by date, kept in memory on the server.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+/**
+ * A TimeSeries contains data points (date and value) sorted by date. The
+ * dates and values are stored in primitive arrays, so a series with millions
+ * of data points can be kept in memory and searched quickly.
+ *
+ * A TimeSeries is immutable, and can be shared by multiple threads.
+ */
+public class TimeSeries {
+	private final long[] dates;
+	private final double[] values;
+
+	/**
+	 * Constructor
+	 *
+	 * @param dates
+	 *            The timestamps of the data points in milliseconds, sorted in
+	 *            ascending order
+	 * @param values
+	 *            The values of the data points, with the same length as dates.
+	 *            A value Double.NaN means that there is no value.
+	 */
+	public TimeSeries(long[] dates, double[] values) {
+		if (dates == null || values == null) {
+			throw new IllegalArgumentException("Dates and values must be defined");
+		}
+		if (dates.length != values.length) {
+			throw new IllegalArgumentException(
+					"Dates and values must have the same length");
+		}
+		for (int i = 1; i < dates.length; i++) {
+			if (dates[i] < dates[i - 1]) {
+				throw new IllegalArgumentException(
+						"Dates must be sorted in ascending order");
+			}
+		}
+
+		this.dates = dates.clone();
+		this.values = values.clone();
+	}
+
+	/**
+	 * Get the number of data points
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return dates.length;
+	}
+
+	/**
+	 * Get the date of a data point
+	 *
+	 * @param index
+	 * @return date in milliseconds
+	 */
+	public long getDate(int index) {
+		return dates[index];
+	}
+
+	/**
+	 * Get the value of a data point
+	 *
+	 * @param index
+	 * @return value, or Double.NaN when the data point has no value
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Find the index of the first data point with a date larger than or equal
+	 * to the given date, using a binary search.
+	 *
+	 * @param date
+	 *            A date in milliseconds
+	 * @return index The found index, or size() when all data points are
+	 *         before the given date
+	 */
+	public int indexOf(long date) {
+		int low = 0;
+		int high = dates.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (dates[middle] < date) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
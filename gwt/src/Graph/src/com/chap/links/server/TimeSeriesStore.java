@@ -0,0 +1,94 @@
+/**
+ * @file TimeSeriesStore.java
+ *
+ * @brief
+ * An in-memory store with time series, served to the Graph by the
+ * GraphDataServlet.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The TimeSeriesStore contains time series by id. The application fills the
+ * store, for example on startup, and the GraphDataServlet reads the series
+ * from the store. The store is thread safe.
+ */
+public class TimeSeriesStore {
+	private static final TimeSeriesStore instance = new TimeSeriesStore();
+
+	private final ConcurrentMap<String, TimeSeries> series =
+		new ConcurrentHashMap<String, TimeSeries>();
+
+	/**
+	 * Get the default store, which is used by the GraphDataServlet
+	 *
+	 * @return store
+	 */
+	public static TimeSeriesStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Store a time series. An existing series with the same id is replaced.
+	 *
+	 * @param id
+	 *            The id of the series
+	 * @param timeSeries
+	 */
+	public void put(String id, TimeSeries timeSeries) {
+		if (id == null || timeSeries == null) {
+			throw new IllegalArgumentException("Id and series must be defined");
+		}
+		series.put(id, timeSeries);
+	}
+
+	/**
+	 * Get a time series
+	 *
+	 * @param id
+	 *            The id of the series
+	 * @return timeSeries The series, or null when not found
+	 */
+	public TimeSeries get(String id) {
+		return series.get(id);
+	}
+
+	/**
+	 * Remove a time series
+	 *
+	 * @param id
+	 *            The id of the series
+	 * @return timeSeries The removed series, or null when not found
+	 */
+	public TimeSeries remove(String id) {
+		return series.remove(id);
+	}
+
+	/**
+	 * Get the ids of all stored series
+	 *
+	 * @return ids
+	 */
+	public Set<String> getIds() {
+		return series.keySet();
+	}
+}
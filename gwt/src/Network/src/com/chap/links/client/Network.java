@@ -10,6 +10,7 @@ package com.chap.links.client;
 
 import com.chap.links.client.events.ReadyHandler;
 import com.chap.links.client.events.SelectHandler;
+import com.chap.links.client.events.StabilizedHandler;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.dom.client.Element;
@@ -100,6 +101,235 @@ public class Network extends Visualization<Network.Options>
 			this.stabilize = stabilize;
 		}-*/;
 
+		/**
+		 * Set the tolerance for stabilization. The network is stable when
+		 * the average kinetic energy of the nodes is below the tolerance.
+		 * 
+		 * @param tolerance
+		 *            default: 0.01
+		 */
+		public final native void setStabilizationTolerance(double tolerance) /*-{
+			this.stabilizationTolerance = tolerance;
+		}-*/;
+
+		/**
+		 * Set the maximum number of iterations to stabilize the network.
+		 * 
+		 * @param iterations
+		 *            default: 1000
+		 */
+		public final native void setStabilizationIterations(int iterations) /*-{
+			this.stabilizationIterations = iterations;
+		}-*/;
+
+		/**
+		 * Set the maximum duration of the stabilization.
+		 * 
+		 * @param timeout
+		 *            Timeout in milliseconds. 0 (default) means no limit.
+		 */
+		public final native void setStabilizationTimeout(int timeout) /*-{
+			this.stabilizationTimeout = timeout;
+		}-*/;
+
+		/**
+		 * Stabilize the network in time slices, so the page stays responsive
+		 * while stabilizing a large network. The event stabilized is fired
+		 * when finished.
+		 * 
+		 * @param progressive
+		 *            False by default.
+		 */
+		public final native void setStabilizationProgressive(boolean progressive) /*-{
+			this.stabilizationProgressive = progressive;
+		}-*/;
+
+		/**
+		 * Set the duration of a time slice of a progressive stabilization.
+		 * 
+		 * @param slice
+		 *            Duration in milliseconds, default: 20
+		 */
+		public final native void setStabilizationSlice(int slice) /*-{
+			this.stabilizationSlice = slice;
+		}-*/;
+
+		/**
+		 * Draw the intermediate layouts of a progressive stabilization.
+		 * 
+		 * @param drawIntermediate
+		 *            True by default. If false, the network is drawn once
+		 *            it is stabilized.
+		 */
+		public final native void setStabilizationDrawIntermediate(
+				boolean drawIntermediate) /*-{
+			this.stabilizationDrawIntermediate = drawIntermediate;
+		}-*/;
+
+		/**
+		 * Set the solver used to calculate the repulsing forces between nodes.
+		 * 
+		 * @param solver
+		 *            Choose from "pairwise" (default), "grid", or "barneshut".
+		 *            The solvers "grid" and "barneshut" only evaluate nodes
+		 *            nearby, and are much faster for large networks.
+		 */
+		public final native void setPhysicsSolver(String solver) /*-{
+			this.physicsSolver = solver;
+		}-*/;
+
+		/**
+		 * Run the force simulation in a Web Worker, so it does not block the
+		 * user interface. Ignored when the browser does not support workers.
+		 * 
+		 * @param physicsWorker
+		 *            If true, the simulation runs in a worker. False by
+		 *            default.
+		 */
+		public final native void setPhysicsWorker(boolean physicsWorker) /*-{
+			this.physicsWorker = physicsWorker;
+		}-*/;
+
+		/**
+		 * Set the number of hops around added nodes and links which are
+		 * relaxed when nodes or links are added. The rest of the network
+		 * keeps its position. A negative value restarts the simulation of
+		 * the whole network instead.
+		 * 
+		 * @param relaxationDepth
+		 *            default: 2
+		 */
+		public final native void setRelaxationDepth(int relaxationDepth) /*-{
+			this.relaxationDepth = relaxationDepth;
+		}-*/;
+
+		/**
+		 * Find the initial layout via coarsened versions of the network:
+		 * linked nodes are merged repeatedly, the smallest network is laid
+		 * out first, and each larger network starts from the positions of
+		 * the smaller one. Reduces the stabilization time of large networks.
+		 * 
+		 * @param multilevel
+		 *            False by default.
+		 */
+		public final native void setMultilevel(boolean multilevel) /*-{
+			this.multilevel = multilevel;
+		}-*/;
+
+		/**
+		 * Set the number of iterations to refine each coarsened network of
+		 * the multilevel layout.
+		 * 
+		 * @param iterations
+		 *            default: 50
+		 */
+		public final native void setMultilevelIterations(int iterations) /*-{
+			this.multilevelIterations = iterations;
+		}-*/;
+
+		/**
+		 * Set the scale below which the labels of nodes and links are not
+		 * drawn.
+		 * 
+		 * @param scale
+		 *            default: 0.3
+		 */
+		public final native void setLodLabelScale(double scale) /*-{
+			this.lodLabelScale = scale;
+		}-*/;
+
+		/**
+		 * Set the scale below which links are drawn as plain lines, without
+		 * arrows and dashes.
+		 * 
+		 * @param scale
+		 *            default: 0.3
+		 */
+		public final native void setLodArrowScale(double scale) /*-{
+			this.lodArrowScale = scale;
+		}-*/;
+
+		/**
+		 * Set the size in pixels below which nodes are drawn as a plain dot.
+		 * 
+		 * @param size
+		 *            default: 3
+		 */
+		public final native void setLodDotSize(int size) /*-{
+			this.lodDotSize = size;
+		}-*/;
+
+		/**
+		 * Set the maximum size of the cache with rendered nodes. Nodes with
+		 * the same style and label are rendered once, and copied when
+		 * drawing the network.
+		 * 
+		 * @param pixels
+		 *            Maximum size in pixels, default: 4000000. The cache is
+		 *            disabled when 0.
+		 */
+		public final native void setSpriteCacheSize(int pixels) /*-{
+			this.spriteCacheSize = pixels;
+		}-*/;
+
+		/**
+		 * Set the maximum number of moving packages added via
+		 * streamPackages. When more packages are added, the oldest packages
+		 * are dropped.
+		 * 
+		 * @param max
+		 *            default: 10000
+		 */
+		public final native void setStreamPackagesMax(int max) /*-{
+			this.streamPackagesMax = max;
+		}-*/;
+
+		/**
+		 * Collapse each group of nodes into a single meta-node when zoomed
+		 * out. The links between groups are merged, and the nodes of a group
+		 * move out of their meta-node when zoomed in again.
+		 * 
+		 * @param aggregation
+		 *            False by default.
+		 */
+		public final native void setGroupAggregation(boolean aggregation) /*-{
+			this.groupAggregation = aggregation;
+		}-*/;
+
+		/**
+		 * Set the scale below which the groups are collapsed, when the option
+		 * groupAggregation is enabled.
+		 * 
+		 * @param scale
+		 *            default: 0.2
+		 */
+		public final native void setGroupAggregationScale(double scale) /*-{
+			this.groupAggregationScale = scale;
+		}-*/;
+
+		/**
+		 * Set a seed for the initial positions of the nodes. With a seed,
+		 * the nodes are placed at the same positions on every draw, so the
+		 * resulting layout is the same for the same data.
+		 * 
+		 * @param seed
+		 *            default: undefined, random positions
+		 */
+		public final native void setRandomSeed(int seed) /*-{
+			this.randomSeed = seed;
+		}-*/;
+
+		/**
+		 * Set the initial positions of the nodes, for example a layout
+		 * retrieved via Network.getPositions. When all nodes have a
+		 * position, the network is not stabilized again.
+		 * 
+		 * @param positions
+		 */
+		public final native void setPositions(Positions positions) /*-{
+			this.positions = positions;
+		}-*/;
+
 		/**
 		 * Set background color
 		 * 
@@ -624,6 +854,97 @@ public class Network extends Visualization<Network.Options>
 		}-*/;		
 	}
 
+	/**
+	 * Statistics of the stabilization of the network
+	 */
+	public static class StabilizationStats extends JavaScriptObject {
+		protected StabilizationStats() {
+		}
+
+		/**
+		 * @return the number of simulated iterations
+		 */
+		public final native int getIterations() /*-{
+			return this.iterations;
+		}-*/;
+
+		/**
+		 * @return the duration of the stabilization in milliseconds
+		 */
+		public final native double getTime() /*-{
+			return this.time;
+		}-*/;
+
+		/**
+		 * @return the kinetic energy of the nodes after the stabilization
+		 */
+		public final native double getEnergy() /*-{
+			return this.energy;
+		}-*/;
+
+		/**
+		 * @return false when the stabilization was ended by the maximum
+		 *         number of iterations or the timeout
+		 */
+		public final native boolean isStable() /*-{
+			return this.stable;
+		}-*/;
+	}
+
+	/**
+	 * Positions of nodes by id. Can be converted to JSON via
+	 * new JSONObject(positions).toString(), and back via
+	 * JsonUtils.safeEval(json), to store a layout.
+	 */
+	public static class Positions extends JavaScriptObject {
+		protected Positions() {
+		}
+
+		/**
+		 * Create an empty object with positions
+		 * 
+		 * @return positions
+		 */
+		public static native Positions create() /*-{
+			return {};
+		}-*/;
+
+		/**
+		 * Set the position of a node
+		 * 
+		 * @param id
+		 * @param x
+		 * @param y
+		 */
+		public final native void set(String id, double x, double y) /*-{
+			this[id] = {"x": x, "y": y};
+		}-*/;
+
+		/**
+		 * @param id
+		 * @return true when a position is available for the node
+		 */
+		public final native boolean has(String id) /*-{
+			return this.hasOwnProperty(id);
+		}-*/;
+
+		/**
+		 * @param id
+		 * @return the horizontal position of the node
+		 */
+		public final native double getX(String id) /*-{
+			return this[id].x;
+		}-*/;
+
+		/**
+		 * @param id
+		 * @return the vertical position of the node
+		 */
+		public final native double getY(String id) /*-{
+			return this[id].y;
+		}-*/;
+	}
+
 	private JavaScriptObject nodesTable = null;
 	private JavaScriptObject linksTable = null;
 	private JavaScriptObject packagesTable = null;
@@ -939,7 +1260,9 @@ public class Network extends Visualization<Network.Options>
 	}-*/;
 	  
 	/**
-	 * Returns a selection array containing the selected rows
+	 * Returns a selection array containing the selected rows. The row of a
+	 * node equals its row in the nodes table until nodes are deleted. A
+	 * deleted node is replaced by the last node, which takes over its row.
 	 * @return Selection array
 	 */
 	public final JsArray<Selection> getSelections() {
@@ -947,7 +1270,7 @@ public class Network extends Visualization<Network.Options>
 	}
 
 	/**
-	 * Set a new selection
+	 * Set a new selection. The rows are the rows returned by getSelections.
 	 * @param sel   A Selection array containing one selection.
 	 */
 	public final void setSelections(JsArray<Selection> sel) {
@@ -977,7 +1300,8 @@ public class Network extends Visualization<Network.Options>
 	/**
 	 * Add a ready handler.
 	 * The ready event is fired when the Network is ready for external method 
-	 * calls.
+	 * calls. When the options physicsWorker and stabilize are true, the event
+	 * is fired once the worker has stabilized the nodes.
 	 * @param handler    A ready handler
 	 */
 	public final void addReadyHandler(com.google.gwt.visualization.client.events.ReadyHandler handler) {
@@ -987,13 +1311,25 @@ public class Network extends Visualization<Network.Options>
 	/**
 	 * Add a ready handler.
 	 * The ready event is fired when the Network is ready for external method 
-	 * calls.
+	 * calls. When the options physicsWorker and stabilize are true, the event
+	 * is fired once the worker has stabilized the nodes.
 	 * @param handler    A ready handler
 	 */
 	public final void addReadyHandler(ReadyHandler handler) {
 	  ReadyHandler.addHandler(this, "ready", handler);
 	}  
 
+	/**
+	 * Add a stabilized handler.
+	 * The stabilized event is fired when the nodes of the Network have been
+	 * moved to a stable position, after drawing the Network with the option
+	 * stabilize enabled.
+	 * @param handler    A stabilized handler
+	 */
+	public final void addStabilizedHandler(StabilizedHandler handler) {
+	  StabilizedHandler.addHandler(this, "stabilized", handler);
+	}  
+
 	/**
 	 * Dynamically create, update, or delete nodes in the network. 
 	 * A node can be deleted by setting the value of the the column "action" 
@@ -1089,6 +1425,58 @@ public class Network extends Visualization<Network.Options>
 			JavaScriptObject packages) /*-{
 		jso.addPackages(packages);
 	}-*/;
+
+	/**
+	 * Add a stream of packages to the network, for example live traffic. 
+	 * The packages move once from their start to their end node, and cannot
+	 * be updated or deleted. The number of moving packages is limited by the
+	 * option streamPackagesMax, the oldest packages are dropped.
+	 * @param packages
+	 */
+	public void streamPackages(AbstractDataTable packages) {
+		nativeStreamPackages(getJso(), packages);
+	}
+
+	/**
+	 * Add a stream of packages to the network, for example live traffic. 
+	 * The packages move once from their start to their end node, and cannot
+	 * be updated or deleted. The number of moving packages is limited by the
+	 * option streamPackagesMax, the oldest packages are dropped.
+	 * @param packages
+	 */
+	public void streamPackages(JavaScriptObject packages) {
+		nativeStreamPackages(getJso(), packages);
+	}
+
+	/**
+	 * Add a stream of packages to the network
+	 * @param jso
+	 * @param packages
+	 */
+	private native void nativeStreamPackages(JavaScriptObject jso,
+			JavaScriptObject packages) /*-{
+		jso.streamPackages(packages);
+	}-*/;
+
+	/**
+	 * Apply a batch of changes to the nodes, links, and packages at once.
+	 * The value ranges are updated and the simulation is restarted once,
+	 * instead of after each call of addNodes, addLinks, and addPackages.
+	 * @param delta
+	 */
+	public void applyDelta(NetworkDelta delta) {
+		nativeApplyDelta(getJso(), delta.toJavaScriptObject());
+	}
+
+	/**
+	 * Apply a batch of changes to the nodes, links, and packages at once
+	 * @param jso
+	 * @param delta
+	 */
+	private native void nativeApplyDelta(JavaScriptObject jso,
+			JavaScriptObject delta) /*-{
+		jso.applyDelta(delta);
+	}-*/;
 	
 
 	/**
@@ -1210,6 +1598,69 @@ public class Network extends Visualization<Network.Options>
 		jso.setSize(width, height);
 	}-*/;
 	
+	/**
+	 * Get statistics of the last stabilization of the network
+	 * 
+	 * @return stats The statistics, or null when the network has not been
+	 *         stabilized
+	 */
+	public StabilizationStats getStabilizationStats() {
+		return nativeGetStabilizationStats(getJso());
+	}
+
+	/**
+	 * Get statistics of the last stabilization of the network
+	 * 
+	 * @param jso
+	 * @return stats
+	 */
+	private native StabilizationStats nativeGetStabilizationStats(
+			JavaScriptObject jso) /*-{
+		return jso.getStabilizationStats() || null;
+	}-*/;
+
+	/**
+	 * Get the current positions of all nodes, for example to store a
+	 * stabilized layout and restore it later
+	 * 
+	 * @return positions
+	 */
+	public Positions getPositions() {
+		return nativeGetPositions(getJso());
+	}
+
+	/**
+	 * Get the current positions of all nodes
+	 * 
+	 * @param jso
+	 * @return positions
+	 */
+	private native Positions nativeGetPositions(JavaScriptObject jso) /*-{
+		return jso.getPositions();
+	}-*/;
+
+	/**
+	 * Move nodes to the provided positions. Nodes without a position are
+	 * placed near their neighbours. When all nodes got a position, the
+	 * simulation is not restarted.
+	 * 
+	 * @param positions
+	 */
+	public void setPositions(Positions positions) {
+		nativeSetPositions(getJso(), positions);
+	}
+
+	/**
+	 * Move nodes to the provided positions
+	 * 
+	 * @param jso
+	 * @param positions
+	 */
+	private native void nativeSetPositions(JavaScriptObject jso,
+			Positions positions) /*-{
+		jso.setPositions(positions);
+	}-*/;
+
 	/**
 	 * Start animation
 	 */
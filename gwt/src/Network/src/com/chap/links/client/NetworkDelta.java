@@ -0,0 +1,410 @@
+/*
+ * Copyright 2013 Almende B.V.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.chap.links.client;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * A NetworkDelta collects changes to the nodes, links, and packages of a
+ * Network, which are applied at once via Network.applyDelta. Applying a delta
+ * is cheaper than calling addNodes, addLinks, and addPackages separately:
+ * the value ranges are updated and the simulation is restarted only once.
+ *
+ * Example usage:
+ *
+ * <pre>
+ * NetworkDelta delta = new NetworkDelta();
+ * delta.createNode(5).setText("Node 5").setValue(3);
+ * delta.createLink(1, 5).setLength(150);
+ * delta.updateNode(2).setText("Renamed");
+ * delta.deleteNode(3);
+ * network.applyDelta(delta);
+ * </pre>
+ */
+public class NetworkDelta {
+	/**
+	 * The properties of a node, link, or package in a NetworkDelta. The
+	 * setters return the item itself, so they can be chained.
+	 */
+	public static class Item extends JavaScriptObject {
+		protected Item() {
+		}
+
+		/**
+		 * Create an item with given action
+		 * @param action  "create", "update", or "delete"
+		 * @return item
+		 */
+		private static native Item create(String action) /*-{
+			return {"action": action};
+		}-*/;
+
+		/**
+		 * Set a property with a string value, for example "style" or "color"
+		 * @param name
+		 * @param value
+		 * @return item
+		 */
+		public final native Item set(String name, String value) /*-{
+			this[name] = value;
+			return this;
+		}-*/;
+
+		/**
+		 * Set a property with a numeric value, for example "x" or "duration"
+		 * @param name
+		 * @param value
+		 * @return item
+		 */
+		public final native Item set(String name, double value) /*-{
+			this[name] = value;
+			return this;
+		}-*/;
+
+		/**
+		 * Set a property with an integer value, for example an id
+		 * @param name
+		 * @param value
+		 * @return item
+		 */
+		public final native Item set(String name, int value) /*-{
+			this[name] = value;
+			return this;
+		}-*/;
+
+		/**
+		 * Set a property with a boolean value
+		 * @param name
+		 * @param value
+		 * @return item
+		 */
+		public final native Item set(String name, boolean value) /*-{
+			this[name] = value;
+			return this;
+		}-*/;
+
+		/**
+		 * Set the text of the item
+		 * @param text
+		 * @return item
+		 */
+		public final Item setText(String text) {
+			return set("text", text);
+		}
+
+		/**
+		 * Set the title of the item, shown as popup
+		 * @param title
+		 * @return item
+		 */
+		public final Item setTitle(String title) {
+			return set("title", title);
+		}
+
+		/**
+		 * Set the value of the item, which determines its size or width
+		 * @param value
+		 * @return item
+		 */
+		public final Item setValue(double value) {
+			return set("value", value);
+		}
+
+		/**
+		 * Set the style of the item, for example "dot" for a node, or
+		 * "arrow" for a link
+		 * @param style
+		 * @return item
+		 */
+		public final Item setStyle(String style) {
+			return set("style", style);
+		}
+
+		/**
+		 * Set the color of the item
+		 * @param color
+		 * @return item
+		 */
+		public final Item setColor(String color) {
+			return set("color", color);
+		}
+
+		/**
+		 * Set the group of a node
+		 * @param group
+		 * @return item
+		 */
+		public final Item setGroup(String group) {
+			return set("group", group);
+		}
+
+		/**
+		 * Set the length of a link
+		 * @param length
+		 * @return item
+		 */
+		public final Item setLength(double length) {
+			return set("length", length);
+		}
+	}
+
+	private JsArray<Item> nodes = JavaScriptObject.createArray().cast();
+	private JsArray<Item> links = JavaScriptObject.createArray().cast();
+	private JsArray<Item> packages = JavaScriptObject.createArray().cast();
+
+	/**
+	 * Create a node. A node with the same id is replaced.
+	 * @param id
+	 * @return node   The properties of the node
+	 */
+	public Item createNode(String id) {
+		return add(nodes, Item.create("create").set("id", id));
+	}
+
+	/**
+	 * Create a node. A node with the same id is replaced.
+	 * @param id
+	 * @return node   The properties of the node
+	 */
+	public Item createNode(int id) {
+		return add(nodes, Item.create("create").set("id", id));
+	}
+
+	/**
+	 * Update the properties of an existing node
+	 * @param id
+	 * @return node   The changed properties of the node
+	 */
+	public Item updateNode(String id) {
+		return add(nodes, Item.create("update").set("id", id));
+	}
+
+	/**
+	 * Update the properties of an existing node
+	 * @param id
+	 * @return node   The changed properties of the node
+	 */
+	public Item updateNode(int id) {
+		return add(nodes, Item.create("update").set("id", id));
+	}
+
+	/**
+	 * Delete a node
+	 * @param id
+	 */
+	public void deleteNode(String id) {
+		add(nodes, Item.create("delete").set("id", id));
+	}
+
+	/**
+	 * Delete a node
+	 * @param id
+	 */
+	public void deleteNode(int id) {
+		add(nodes, Item.create("delete").set("id", id));
+	}
+
+	/**
+	 * Create a link between two nodes
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 * @return link  The properties of the link
+	 */
+	public Item createLink(String from, String to) {
+		return add(links, Item.create("create").set("from", from).set("to", to));
+	}
+
+	/**
+	 * Create a link between two nodes
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 * @return link  The properties of the link
+	 */
+	public Item createLink(int from, int to) {
+		return add(links, Item.create("create").set("from", from).set("to", to));
+	}
+
+	/**
+	 * Update the properties of an existing link. The link must have been
+	 * created with an id.
+	 * @param id
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 * @return link  The changed properties of the link
+	 */
+	public Item updateLink(String id, String from, String to) {
+		return add(links, Item.create("update").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Update the properties of an existing link. The link must have been
+	 * created with an id.
+	 * @param id
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 * @return link  The changed properties of the link
+	 */
+	public Item updateLink(int id, int from, int to) {
+		return add(links, Item.create("update").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Delete a link. The link must have been created with an id.
+	 * @param id
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 */
+	public void deleteLink(String id, String from, String to) {
+		add(links, Item.create("delete").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Delete a link. The link must have been created with an id.
+	 * @param id
+	 * @param from   The id of the start node
+	 * @param to     The id of the end node
+	 */
+	public void deleteLink(int id, int from, int to) {
+		add(links, Item.create("delete").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Create a package moving from one node to another
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 * @return package The properties of the package
+	 */
+	public Item createPackage(String from, String to) {
+		return add(packages, Item.create("create").set("from", from).set("to", to));
+	}
+
+	/**
+	 * Create a package moving from one node to another
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 * @return package The properties of the package
+	 */
+	public Item createPackage(int from, int to) {
+		return add(packages, Item.create("create").set("from", from).set("to", to));
+	}
+
+	/**
+	 * Update the properties of an existing package. The package must have
+	 * been created with an id.
+	 * @param id
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 * @return package The changed properties of the package
+	 */
+	public Item updatePackage(String id, String from, String to) {
+		return add(packages, Item.create("update").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Update the properties of an existing package. The package must have
+	 * been created with an id.
+	 * @param id
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 * @return package The changed properties of the package
+	 */
+	public Item updatePackage(int id, int from, int to) {
+		return add(packages, Item.create("update").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Delete a package. The package must have been created with an id.
+	 * @param id
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 */
+	public void deletePackage(String id, String from, String to) {
+		add(packages, Item.create("delete").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Delete a package. The package must have been created with an id.
+	 * @param id
+	 * @param from     The id of the start node
+	 * @param to       The id of the end node
+	 */
+	public void deletePackage(int id, int from, int to) {
+		add(packages, Item.create("delete").set("id", id)
+				.set("from", from).set("to", to));
+	}
+
+	/**
+	 * Check whether the delta contains any changes
+	 * @return empty
+	 */
+	public boolean isEmpty() {
+		return nodes.length() == 0 && links.length() == 0 &&
+				packages.length() == 0;
+	}
+
+	/**
+	 * Remove all collected changes, so the delta can be reused
+	 */
+	public void clear() {
+		nodes = JavaScriptObject.createArray().cast();
+		links = JavaScriptObject.createArray().cast();
+		packages = JavaScriptObject.createArray().cast();
+	}
+
+	/**
+	 * Get the delta as Javascript object, which can be passed to the method
+	 * applyDelta of the javascript Network. Fields without changes are
+	 * omitted.
+	 * @return delta  An object with fields nodes, links, and packages
+	 */
+	public JavaScriptObject toJavaScriptObject() {
+		return toJavaScriptObject(nodes, links, packages);
+	}
+
+	private static native JavaScriptObject toJavaScriptObject(
+			JsArray<Item> nodes, JsArray<Item> links, JsArray<Item> packages) /*-{
+		var delta = {};
+		if (nodes.length) {
+			delta.nodes = nodes;
+		}
+		if (links.length) {
+			delta.links = links;
+		}
+		if (packages.length) {
+			delta.packages = packages;
+		}
+		return delta;
+	}-*/;
+
+	/**
+	 * Append an item to an array
+	 * @param items
+	 * @param item
+	 * @return item
+	 */
+	private static Item add(JsArray<Item> items, Item item) {
+		items.push(item);
+		return item;
+	}
+}
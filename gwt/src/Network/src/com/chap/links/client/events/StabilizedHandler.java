@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Almende B.V.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.chap.links.client.events;
+
+import com.google.gwt.ajaxloader.client.Properties;
+import com.google.gwt.ajaxloader.client.Properties.TypeException;
+
+/**
+ * A handler for stabilized events. The stabilized event is fired when the
+ * nodes of the Network have been moved to a stable position.
+ */
+public abstract class StabilizedHandler extends Handler {
+  /**
+   * The stabilized event contains the statistics of the stabilization.
+   */
+  public static class StabilizedEvent {
+    private final int iterations;
+    private final double time;
+    private final double energy;
+    private final boolean stable;
+
+    public StabilizedEvent(int iterations, double time, double energy,
+        boolean stable) {
+      this.iterations = iterations;
+      this.time = time;
+      this.energy = energy;
+      this.stable = stable;
+    }
+
+    /**
+     * @return the number of simulated iterations
+     */
+    public int getIterations() {
+      return iterations;
+    }
+
+    /**
+     * @return the duration of the stabilization in milliseconds
+     */
+    public double getTime() {
+      return time;
+    }
+
+    /**
+     * @return the kinetic energy of the nodes after the stabilization
+     */
+    public double getEnergy() {
+      return energy;
+    }
+
+    /**
+     * @return false when the stabilization was ended by the maximum number
+     *         of iterations or the timeout
+     */
+    public boolean isStable() {
+      return stable;
+    }
+  }
+
+  public abstract void onStabilized(StabilizedEvent event);
+
+  @Override
+  protected void onEvent(Properties properties) throws TypeException {
+    Double iterations = properties.getNumber("iterations");
+    Double time = properties.getNumber("time");
+    Double energy = properties.getNumber("energy");
+    Boolean stable = properties.getBoolean("stable");
+
+    onStabilized(new StabilizedEvent(
+        iterations != null ? iterations.intValue() : 0,
+        time != null ? time.doubleValue() : 0,
+        energy != null ? energy.doubleValue() : 0,
+        stable != null && stable.booleanValue()));
+  }
+}
@@ -0,0 +1,622 @@
+/**
+ * @file NetworkLayout.java
+ *
+ * @brief
+ * Calculates stable positions for the nodes of a Network on the server.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The NetworkLayout implements the same force model as the Network in the
+ * browser: the links are springs with a stiffness of 1/length, the nodes
+ * repulse each other with a sigmoid force around the minimum distance, and a
+ * small gravity pulls all nodes to the center. It calculates stable positions
+ * for the nodes, which can be passed to the Network as fixed positions
+ * (properties x and y of the nodes) together with setStabilize(false), so the
+ * network is displayed immediately.
+ *
+ * The forces are calculated in parallel: the nodes are split in chunks via a
+ * fork-join pool, and each task calculates the forces acting on its own
+ * nodes. As every force is calculated by a single task, in a fixed order, the
+ * result does not depend on the number of threads or the scheduling of the
+ * tasks: the same network always gets the same positions.
+ *
+ * The repulsing force vanishes beyond CUTOFF times the node distance, so the
+ * nodes are sorted into a grid with cells of at least this size each
+ * iteration, like the grid solver of the Network, and a node is only repulsed
+ * by the nodes in its own and the neighbouring cells. The costs of an
+ * iteration are linear in the number of nodes as long as the nodes are spread
+ * out. When many nodes end up close together, for example on a small canvas
+ * with a large node distance, the costs approach O(n^2) per iteration.
+ *
+ * Example usage:
+ *
+ * <pre>
+ * NetworkLayout layout = new NetworkLayout();
+ * layout.addNode(&quot;1&quot;);
+ * layout.addNode(&quot;2&quot;);
+ * layout.addLink(&quot;1&quot;, &quot;2&quot;);
+ * layout.stabilize();
+ * Map&lt;String, Position&gt; positions = layout.getPositions();
+ * </pre>
+ */
+public class NetworkLayout {
+	/** minimum number of nodes for a chunk to be split further */
+	public static final int THRESHOLD = 256;
+
+	/**
+	 * distance beyond which the repulsing force is neglected, as a multiple of
+	 * the node distance
+	 */
+	public static final double CUTOFF = 2.5;
+
+	private static final double GRAVITY = 0.01;
+	private static final double STEEPNESS = 10;
+	private static final double DAMPING = 0.9;
+
+	private final ForkJoinPool pool;
+
+	private int width = 400;
+	private int height = 400;
+	private double nodeDistance = 100;
+	private double linkLength = 100;
+	private double minForce = 0.05;
+	private double minVelocity = 0.02;
+	private int maxIterations = 1000;
+	private double interval = 0.05; // seconds, the refresh rate of the Network
+
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+	private final List<String> ids = new ArrayList<String>();
+	private final List<double[]> fixedPositions = new ArrayList<double[]>();
+	private final List<int[]> links = new ArrayList<int[]>();
+	private final List<Double> lengths = new ArrayList<Double>();
+
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+
+	/**
+	 * Constructor. Creates a layout using a pool with one thread per
+	 * available processor.
+	 */
+	public NetworkLayout() {
+		this(new ForkJoinPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 *            The fork-join pool used for the force calculations
+	 */
+	public NetworkLayout(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Set the size of the network in pixels. The nodes are positioned around
+	 * the center.
+	 *
+	 * @param width
+	 *            default: 400
+	 * @param height
+	 *            default: 400
+	 */
+	public void setSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Set the minimum distance between nodes, the option nodes.distance of
+	 * the Network.
+	 *
+	 * @param distance
+	 *            default: 100
+	 */
+	public void setNodeDistance(double distance) {
+		this.nodeDistance = distance;
+	}
+
+	/**
+	 * Set the default length of the links, the option links.length of the
+	 * Network.
+	 *
+	 * @param length
+	 *            default: 100
+	 */
+	public void setLinkLength(double length) {
+		this.linkLength = length;
+	}
+
+	/**
+	 * Set the maximum number of iterations to stabilize the network
+	 *
+	 * @param maxIterations
+	 *            default: 1000
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Set the velocity and force below which a node is considered stable
+	 *
+	 * @param minVelocity
+	 *            default: 0.02
+	 * @param minForce
+	 *            default: 0.05
+	 */
+	public void setStableThreshold(double minVelocity, double minForce) {
+		this.minVelocity = minVelocity;
+		this.minForce = minForce;
+	}
+
+	/**
+	 * Add a node. An existing node with the same id is left unchanged.
+	 *
+	 * @param id
+	 *            The id of the node
+	 */
+	public void addNode(String id) {
+		addNode(id, null);
+	}
+
+	/**
+	 * Add a node with a fixed position. The node is not moved by the layout.
+	 *
+	 * @param id
+	 *            The id of the node
+	 * @param x
+	 *            Horizontal position in pixels
+	 * @param y
+	 *            Vertical position in pixels
+	 */
+	public void addNode(String id, double x, double y) {
+		addNode(id, new double[] {x, y});
+	}
+
+	private int addNode(String id, double[] fixedPosition) {
+		if (id == null) {
+			throw new IllegalArgumentException("Id must be defined");
+		}
+		Integer i = index.get(id);
+		if (i == null) {
+			i = ids.size();
+			index.put(id, i);
+			ids.add(id);
+			fixedPositions.add(fixedPosition);
+		} else if (fixedPosition != null) {
+			fixedPositions.set(i, fixedPosition);
+		}
+		return i;
+	}
+
+	/**
+	 * Add a link with the default length. Nodes which do not yet exist are
+	 * created.
+	 *
+	 * @param from
+	 *            The id of the first node
+	 * @param to
+	 *            The id of the second node
+	 */
+	public void addLink(String from, String to) {
+		addLink(from, to, null);
+	}
+
+	/**
+	 * Add a link with a given length. Nodes which do not yet exist are
+	 * created.
+	 *
+	 * @param from
+	 *            The id of the first node
+	 * @param to
+	 *            The id of the second node
+	 * @param length
+	 *            The length of the link in pixels
+	 */
+	public void addLink(String from, String to, double length) {
+		addLink(from, to, Double.valueOf(length));
+	}
+
+	private void addLink(String from, String to, Double length) {
+		int a = addNode(from, null);
+		int b = addNode(to, null);
+		links.add(new int[] {a, b});
+		lengths.add(length);
+	}
+
+	/**
+	 * Calculate stable positions for all nodes. The nodes start on a circle
+	 * around the center, like in the Network.
+	 *
+	 * @return iterations The number of iterations needed
+	 */
+	public int stabilize() {
+		int count = ids.size();
+		int linkCount = links.size();
+
+		// initial positions, on a circle around the center
+		double cx = width / 2.0;
+		double cy = height / 2.0;
+		double radius = linkLength * 2;
+		x = new double[count];
+		y = new double[count];
+		boolean[] fixed = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			double[] position = fixedPositions.get(i);
+			if (position != null) {
+				x[i] = position[0];
+				y[i] = position[1];
+				fixed[i] = true;
+			} else {
+				double angle = 2 * Math.PI * ((double) i / count);
+				x[i] = cx + radius * Math.cos(angle);
+				y[i] = cy + radius * Math.sin(angle);
+			}
+		}
+
+		// adjacency lists of the links, and the mass of the nodes
+		int[] degree = new int[count];
+		for (int[] link : links) {
+			degree[link[0]]++;
+			degree[link[1]]++;
+		}
+		int[][] neighbours = new int[count][];
+		double[][] stiffness = new double[count][];
+		double[][] restLength = new double[count][];
+		double[] mass = new double[count];
+		for (int i = 0; i < count; i++) {
+			neighbours[i] = new int[degree[i]];
+			stiffness[i] = new double[degree[i]];
+			restLength[i] = new double[degree[i]];
+			mass[i] = 50 + 20 * degree[i]; // kg
+			degree[i] = 0;
+		}
+		for (int l = 0; l < linkCount; l++) {
+			int[] link = links.get(l);
+			double length = (lengths.get(l) != null) ? lengths.get(l) : linkLength;
+			for (int end = 0; end < 2; end++) {
+				int node = link[end];
+				int other = link[1 - end];
+				int d = degree[node]++;
+				neighbours[node][d] = other;
+				stiffness[node][d] = 1 / length;
+				restLength[node][d] = length;
+			}
+		}
+
+		Model model = new Model(x, y, fixed, mass, neighbours, stiffness,
+				restLength, cx, cy, nodeDistance);
+
+		int iterations = 0;
+		boolean stable = false;
+		while (!stable && iterations < maxIterations) {
+			model.sortIntoGrid();
+			pool.invoke(new ForceTask(model, 0, count));
+			stable = !model.step(interval, minVelocity, minForce);
+			iterations++;
+		}
+
+		return iterations;
+	}
+
+	/**
+	 * Get the positions of all nodes, calculated by stabilize()
+	 *
+	 * @return positions A map with the position per node id, in the order in
+	 *         which the nodes have been added
+	 */
+	public Map<String, Position> getPositions() {
+		Map<String, Position> positions = new LinkedHashMap<String, Position>();
+		for (int i = 0; i < ids.size() && i < x.length; i++) {
+			positions.put(ids.get(i), new Position(x[i], y[i]));
+		}
+		return positions;
+	}
+
+	/**
+	 * Get the position of a node, calculated by stabilize()
+	 *
+	 * @param id
+	 *            The id of the node
+	 * @return position The position, or null when not found
+	 */
+	public Position getPosition(String id) {
+		Integer i = index.get(id);
+		if (i == null || i >= x.length) {
+			return null;
+		}
+		return new Position(x[i], y[i]);
+	}
+
+	/**
+	 * Shut down the fork-join pool of this layout
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * The state of the simulation
+	 */
+	private static class Model {
+		final double[] x;
+		final double[] y;
+		final double[] vx;
+		final double[] vy;
+		final double[] fx;
+		final double[] fy;
+		final boolean[] fixed;
+		final double[] mass;
+		final int[][] neighbours;
+		final double[][] stiffness;
+		final double[][] restLength;
+		final double gx;
+		final double gy;
+		final double distance;
+		final double cutoff;
+
+		// grid with the nodes sorted by cell, see sortIntoGrid
+		double left;
+		double top;
+		double cellSize;
+		int cols;
+		int rows;
+		int[] cellStart = new int[0];
+		final int[] cellOrder;
+		final int[] cellIndex;
+
+		Model(double[] x, double[] y, boolean[] fixed, double[] mass,
+				int[][] neighbours, double[][] stiffness,
+				double[][] restLength, double gx, double gy, double distance) {
+			this.x = x;
+			this.y = y;
+			this.vx = new double[x.length];
+			this.vy = new double[x.length];
+			this.fx = new double[x.length];
+			this.fy = new double[x.length];
+			this.fixed = fixed;
+			this.mass = mass;
+			this.neighbours = neighbours;
+			this.stiffness = stiffness;
+			this.restLength = restLength;
+			this.gx = gx;
+			this.gy = gy;
+			this.distance = distance;
+			this.cutoff = distance * CUTOFF;
+			this.cellOrder = new int[x.length];
+			this.cellIndex = new int[x.length];
+		}
+
+		/**
+		 * Sort the nodes into a grid with cells of at least the cut-off
+		 * distance (counting sort). Afterwards, the nodes of cell c are
+		 * cellOrder[cellStart[c]] ... cellOrder[cellStart[c + 1] - 1], in
+		 * ascending order.
+		 */
+		void sortIntoGrid() {
+			int count = x.length;
+			if (count == 0) {
+				return;
+			}
+
+			left = Double.POSITIVE_INFINITY;
+			top = Double.POSITIVE_INFINITY;
+			double right = Double.NEGATIVE_INFINITY;
+			double bottom = Double.NEGATIVE_INFINITY;
+			for (int n = 0; n < count; n++) {
+				left = Math.min(left, x[n]);
+				top = Math.min(top, y[n]);
+				right = Math.max(right, x[n]);
+				bottom = Math.max(bottom, y[n]);
+			}
+
+			// use larger cells when the nodes are spread out over a large
+			// area, to limit the number of cells to a few per node
+			double width = right - left;
+			double height = bottom - top;
+			cellSize = Math.max(cutoff, Math.max(
+					Math.sqrt(width * height / (4 * count)),
+					(width + height) / (4 * count)));
+			cols = (int) Math.floor(width / cellSize) + 1;
+			rows = (int) Math.floor(height / cellSize) + 1;
+			int cells = cols * rows;
+			if (cellStart.length < cells + 1) {
+				cellStart = new int[Math.max(cells + 1, 2 * cellStart.length)];
+			}
+
+			for (int c = 0; c <= cells; c++) {
+				cellStart[c] = 0;
+			}
+			for (int n = 0; n < count; n++) {
+				int c = (int) Math.floor((x[n] - left) / cellSize)
+						+ (int) Math.floor((y[n] - top) / cellSize) * cols;
+				cellIndex[n] = c;
+				cellStart[c + 1]++;
+			}
+			for (int c = 0; c < cells; c++) {
+				cellStart[c + 1] += cellStart[c];
+			}
+			for (int n = 0; n < count; n++) {
+				int c = cellIndex[n];
+				cellOrder[cellStart[c]] = n;
+				cellStart[c]++;
+			}
+			// cellStart now contains the end of each cell, shift it back
+			for (int c = cells; c > 0; c--) {
+				cellStart[c] = cellStart[c - 1];
+			}
+			cellStart[0] = 0;
+		}
+
+		/**
+		 * Calculate the force acting on a node: gravity, the repulsing forces
+		 * of the nodes within the cut-off distance, and the springs of its
+		 * links. The nodes must have been sorted into the grid.
+		 *
+		 * @param a
+		 *            Index of the node
+		 */
+		void calculateForce(int a) {
+			double xa = x[a];
+			double ya = y[a];
+
+			// gravity
+			double dx = gx - xa;
+			double dy = gy - ya;
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			double sfx = (distance > 0) ? dx / distance * GRAVITY : GRAVITY;
+			double sfy = (distance > 0) ? dy / distance * GRAVITY : 0;
+
+			// repulsing forces of the nodes in the cell of the node and the
+			// neighbouring cells
+			double cutoff2 = cutoff * cutoff;
+			int col = cellIndex[a] % cols;
+			int row = cellIndex[a] / cols;
+			for (int r = Math.max(row - 1, 0); r <= row + 1 && r < rows; r++) {
+				for (int c = Math.max(col - 1, 0); c <= col + 1 && c < cols; c++) {
+					int cell = c + r * cols;
+					for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+						int b = cellOrder[i];
+						if (b == a) {
+							continue;
+						}
+						dx = x[b] - xa;
+						dy = y[b] - ya;
+						double distance2 = dx * dx + dy * dy;
+						if (distance2 >= cutoff2) {
+							continue;
+						}
+						distance = Math.sqrt(distance2);
+						double repulsingforce = 1 / (1 + Math.exp(
+								(distance / this.distance - 1) * STEEPNESS));
+						if (distance > 0) {
+							sfx -= dx / distance * repulsingforce;
+							sfy -= dy / distance * repulsingforce;
+						} else {
+							// push nodes at the same position apart in
+							// opposite directions
+							sfx += (a < b) ? -repulsingforce : repulsingforce;
+						}
+					}
+				}
+			}
+
+			// forces caused by the links, modelled as springs
+			int[] others = neighbours[a];
+			for (int i = 0; i < others.length; i++) {
+				int b = others[i];
+				if (b == a) {
+					continue; // a link from a node to itself has no force
+				}
+				dx = x[b] - xa;
+				dy = y[b] - ya;
+				double length = Math.sqrt(dx * dx + dy * dy);
+				double springforce = stiffness[a][i] * (restLength[a][i] - length);
+				sfx -= (length > 0) ? dx / length * springforce
+						: ((a < b) ? springforce : -springforce);
+				sfy -= (length > 0) ? dy / length * springforce : 0;
+			}
+
+			fx[a] = sfx;
+			fy[a] = sfy;
+		}
+
+		/**
+		 * Perform one discrete step for all nodes
+		 *
+		 * @param interval
+		 *            Time interval in seconds
+		 * @param minVelocity
+		 * @param minForce
+		 * @return moving True if any of the nodes is still moving
+		 */
+		boolean step(double interval, double minVelocity, double minForce) {
+			boolean moving = false;
+			for (int n = 0; n < x.length; n++) {
+				if (!fixed[n]) {
+					double ax = (fx[n] - DAMPING * vx[n]) / mass[n];
+					vx[n] += ax / interval;
+					x[n] += vx[n] / interval;
+
+					double ay = (fy[n] - DAMPING * vy[n]) / mass[n];
+					vy[n] += ay / interval;
+					y[n] += vy[n] / interval;
+				}
+
+				if (Math.abs(vx[n]) > minVelocity || Math.abs(vy[n]) > minVelocity ||
+						(!fixed[n] && (Math.abs(fx[n]) > minForce || Math.abs(fy[n]) > minForce))) {
+					moving = true;
+				}
+			}
+			return moving;
+		}
+	}
+
+	/**
+	 * Task calculating the forces acting on a range of nodes
+	 */
+	private static class ForceTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Model model;
+		private final int from;
+		private final int to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param model
+		 *            The state of the simulation
+		 * @param from
+		 *            Index of the first node
+		 * @param to
+		 *            Index of the last node (excluded)
+		 */
+		ForceTask(Model model, int from, int to) {
+			this.model = model;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > THRESHOLD) {
+				// split in two halves
+				int middle = (from + to) >>> 1;
+				invokeAll(new ForceTask(model, from, middle),
+						new ForceTask(model, middle, to));
+				return;
+			}
+
+			for (int n = from; n < to; n++) {
+				model.calculateForce(n);
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * @file Position.java
+ *
+ * @brief
+ * The position of a node in a Network.
+ *
+ * @license
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * Copyright © 2010-2013 Almende B.V.
+ */
+
+package com.chap.links.server;
+
+/**
+ * The position of a node in pixels, as calculated by the NetworkLayout
+ */
+public class Position {
+	private final double x;
+	private final double y;
+
+	/**
+	 * Constructor
+	 *
+	 * @param x
+	 *            Horizontal position in pixels
+	 * @param y
+	 *            Vertical position in pixels
+	 */
+	public Position(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
+	}
+}
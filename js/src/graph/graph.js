@@ -76,6 +76,10 @@ links.Graph = function(container) {
 
     this.redrawWhileMoving = true;
 
+    this.streamCapacity = 10000; // maximum number of points of a streamed series
+    this.streamAutoScroll = true;
+    this.vAutoScale = false; // fit the vertical range to the visible data
+
     this.legend = undefined;
     this.line = {};  // object default style for all lines
     this.lines = [];  // array containing specific line styles, colors, etc.
@@ -128,10 +132,12 @@ links.Graph = function(container) {
  *
  *  All options are optional.
  *
- * @param {google.visualization.DataTable | Array} data
+ * @param {google.visualization.DataTable | Array | String} data
  *                                  The data containing the events for the Graph.
  *                                  Object DataTable is defined in
  *                                  google.visualization.DataTable.
+ *                                  Can also be the id of a shared data set,
+ *                                  registered via links.Graph.registerDataSet.
  * @param {Object} options          A name/value map containing settings for the
  *                                  Graph.
  */
@@ -152,6 +158,8 @@ links.Graph.prototype.draw = function(data, options) {
         if (options.scale != undefined)         this.scale = options.scale;
         if (options.step != undefined)          this.step = options.step;
         if (options.autoDataStep != undefined)  this.autoDataStep = options.autoDataStep;
+        if (options.streamCapacity != undefined) this.streamCapacity = options.streamCapacity;
+        if (options.streamAutoScroll != undefined) this.streamAutoScroll = options.streamAutoScroll;
 
         if (options.moveable != undefined)      this.moveable = options.moveable;
         if (options.zoomable != undefined)      this.zoomable = options.zoomable;
@@ -166,6 +174,7 @@ links.Graph.prototype.draw = function(data, options) {
         if (options.vStep != undefined)         this.vStepSize = options.vStep;
         if (options.vPrettyStep != undefined)   this.vPrettyStep = options.vPrettyStep;
         if (options.vAreas != undefined)        this.vAreas = options.vAreas;
+        if (options.vAutoScale != undefined)    this.vAutoScale = options.vAutoScale;
 
         if (options.legend != undefined)        this.legend = options.legend;  // can contain legend.width
         if (options.tooltip != undefined) {
@@ -221,12 +230,61 @@ links.Graph.prototype.trigger = function (event, params) {
 
 /**
  * Read data into the graph
+ * @param {google.visualization.DataTable | Array | String} data
+ *                  The data, or the id of a data set registered via
+ *                  links.Graph.registerDataSet
  */
 links.Graph.prototype._readData = function(data) {
+    var dataSet = undefined;
+    if (typeof data === 'string') {
+        // bind to a shared data set
+        dataSet = links.Graph._acquireDataSet(data);
+    }
+
+    // release the previously bound data set (after acquiring the new one,
+    // the data set may be the same)
+    if (this.dataSet) {
+        links.Graph.releaseDataSet(this.dataSet.id);
+    }
+    this.dataSet = dataSet;
+
+    if (dataSet) {
+        // create a view on each of the shared series. The data, ranges, and
+        // indexes are shared, the state of the view (like the visible rows)
+        // is stored per graph.
+        this.data = [];
+        for (var i = 0, len = dataSet.series.length; i < len; i++) {
+            var series = dataSet.series[i];
+            this.data.push({
+                "label": series.label,
+                "type": series.type,
+                "dataRange": series.dataRange,
+                "rowRange": series.rowRange,
+                "valueIndex": series.valueIndex,
+                "visibleRowRange": undefined,
+                "data": series.data,
+                "shared": true
+            });
+        }
+    }
+    else {
+        this.data = links.Graph._parseData(data);
+    }
+};
+
+/**
+ * Parse data for the graph, and calculate the date and value ranges and
+ * indexes of each series.
+ * @param {google.visualization.DataTable | Array} data
+ * @return {Array} series   An array with an object for each series
+ * @private
+ */
+links.Graph._parseData = function(data) {
+    var result;
     if (google && google.visualization && google.visualization.DataTable &&
         data instanceof google.visualization.DataTable) {
         // read a Google DataTable
-        this.data = [];
+        result = [];
 
         for (var col = 1, cols = data.getNumberOfColumns(); col < cols; col++) {
             var dataset = [];
@@ -242,19 +300,19 @@ links.Graph.prototype._readData = function(data) {
                 "visibleRowRange": undefined,
                 "data": dataset
             };
-            this.data.push(graph);
+            result.push(graph);
 
             // TODO: sort by date, and remove redundant null values
         }
     }
     else {
         // parse Javascipt array
-        this.data = data || [];
+        result = data || [];
     }
 
     // calculate date and value ranges
-    for (var i = 0, len = this.data.length; i < len; i++) {
-        var graph = this.data[i];
+    for (var i = 0, len = result.length; i < len; i++) {
+        var graph = result[i];
 
         var fields;
         if (graph.type == 'area') {
@@ -264,9 +322,85 @@ links.Graph.prototype._readData = function(data) {
             fields = ['date']; // 'line' or 'event'
         }
 
-        graph.dataRange = this._getDataRange(graph.data);
-        graph.rowRange = this._getRowRange(graph.data, fields);
+        if (graph.type == undefined || graph.type == 'line') {
+            // index the values, to quickly find the value range of the
+            // visible rows
+            graph.valueIndex = new links.Graph.MinMaxTree(graph.data);
+            graph.dataRange = graph.valueIndex.getRange();
+        }
+        else {
+            graph.valueIndex = undefined;
+            graph.dataRange = links.Graph.prototype._getDataRange(graph.data);
+        }
+        graph.rowRange = links.Graph.prototype._getRowRange(graph.data, fields);
+        graph.pathCache = undefined;
+    }
+
+    return result;
+};
+
+/**
+ * Registry with shared data sets, by id
+ * @private
+ */
+links.Graph.dataSets = {};
+
+/**
+ * Register a shared data set. Multiple graphs can display the data set by
+ * providing its id instead of the data to the method draw, for example
+ * graph.draw('temperature', options). The data is parsed, and its ranges and
+ * indexes are calculated only once for all graphs.
+ *
+ * The data set is reference counted: registering counts as one reference,
+ * and each graph displaying the data set counts as one reference. The data
+ * set is removed from the registry when all references are released, via
+ * releaseDataSet, or when a graph draws other data.
+ *
+ * Series of a shared data set cannot be streamed via appendPoints.
+ *
+ * @param {String} id    An id for the data set
+ * @param {google.visualization.DataTable | Array} data
+ */
+links.Graph.registerDataSet = function(id, data) {
+    if (links.Graph.dataSets[id]) {
+        throw new Error('Data set "' + id + '" is already registered');
+    }
+
+    links.Graph.dataSets[id] = {
+        "id": id,
+        "series": links.Graph._parseData(data),
+        "refCount": 1
+    };
+};
+
+/**
+ * Release a reference to a shared data set. When there are no references
+ * left, the data set is removed from the registry.
+ * @param {String} id    The id of the data set
+ */
+links.Graph.releaseDataSet = function(id) {
+    var dataSet = links.Graph.dataSets[id];
+    if (dataSet) {
+        dataSet.refCount--;
+        if (dataSet.refCount <= 0) {
+            delete links.Graph.dataSets[id];
+        }
+    }
+};
+
+/**
+ * Acquire a reference to a shared data set
+ * @param {String} id    The id of the data set
+ * @return {Object} dataSet
+ * @private
+ */
+links.Graph._acquireDataSet = function(id) {
+    var dataSet = links.Graph.dataSets[id];
+    if (!dataSet) {
+        throw new Error('Unknown data set "' + id + '"');
     }
+    dataSet.refCount++;
+    return dataSet;
 };
 
 /**
@@ -918,6 +1052,307 @@ links.Graph.StepNumber.prototype.end = function () {
 };
 
 
+/**
+ * @constructor links.Graph.RingBuffer
+ * A ring buffer with a fixed capacity, holding the data points of a streamed
+ * series. When the buffer is full, pushing a new data point removes the
+ * oldest one.
+ *
+ * Every data point is stored twice, at index i and i + capacity, so the
+ * contents of the buffer are always available as one contiguous range
+ * items[start] ... items[start + length - 1]. This way the drawing code can
+ * iterate over the buffer like over a regular data array.
+ *
+ * The buffer keeps track of the minimum and maximum value of its contents
+ * using two monotonic queues, so the value range is available at any moment
+ * without scanning the data.
+ *
+ * @param {Number} capacity   The maximum number of data points
+ */
+links.Graph.RingBuffer = function (capacity) {
+    this.capacity = Math.max(parseInt(capacity) || 0, 1);
+    this.items = new Array(2 * this.capacity);
+    this.start = 0;  // index in items of the oldest data point
+    this.length = 0; // number of data points in the buffer
+    this.count = 0;  // total number of data points pushed so far
+
+    // sequence numbers of the candidates for the minimum and maximum value
+    this.minQueue = [];
+    this.minHead = 0;
+    this.maxQueue = [];
+    this.maxHead = 0;
+};
+
+/**
+ * Append a data point to the buffer. When the buffer is full, the oldest
+ * data point is removed and returned.
+ * @param {Object} item   A data point with parameters date and value
+ * @return {Object | undefined} removed   The removed data point, if any
+ */
+links.Graph.RingBuffer.prototype.push = function (item) {
+    var capacity = this.capacity;
+    var removed = undefined;
+    if (this.length == capacity) {
+        removed = this.items[this.start];
+        this.start = (this.start + 1) % capacity;
+        this.length--;
+    }
+
+    var index = (this.start + this.length) % capacity;
+    this.items[index] = item;
+    this.items[index + capacity] = item;
+    this.length++;
+    var seq = this.count++;
+
+    // remove expired candidates from the front of the queues
+    var oldest = this.count - this.length;
+    while (this.minHead < this.minQueue.length && this.minQueue[this.minHead] < oldest) {
+        this.minHead++;
+    }
+    while (this.maxHead < this.maxQueue.length && this.maxQueue[this.maxHead] < oldest) {
+        this.maxHead++;
+    }
+
+    // remove candidates from the back of the queues which can never become
+    // the minimum or maximum anymore
+    var value = item.value;
+    if (value != null && !isNaN(value)) {
+        while (this.minQueue.length > this.minHead &&
+            this._getBySeq(this.minQueue[this.minQueue.length - 1]).value >= value) {
+            this.minQueue.pop();
+        }
+        this.minQueue.push(seq);
+
+        while (this.maxQueue.length > this.maxHead &&
+            this._getBySeq(this.maxQueue[this.maxQueue.length - 1]).value <= value) {
+            this.maxQueue.pop();
+        }
+        this.maxQueue.push(seq);
+    }
+
+    // compact the queues once in a while
+    if (this.minHead > 1024 && this.minHead * 2 > this.minQueue.length) {
+        this.minQueue = this.minQueue.slice(this.minHead);
+        this.minHead = 0;
+    }
+    if (this.maxHead > 1024 && this.maxHead * 2 > this.maxQueue.length) {
+        this.maxQueue = this.maxQueue.slice(this.maxHead);
+        this.maxHead = 0;
+    }
+
+    return removed;
+};
+
+/**
+ * Get a data point from the buffer
+ * @param {Number} index   Index of the data point, 0 is the oldest one
+ * @return {Object} item
+ */
+links.Graph.RingBuffer.prototype.get = function (index) {
+    return this.items[this.start + index];
+};
+
+/**
+ * Get a data point by its sequence number
+ * @param {Number} seq
+ * @return {Object} item
+ * @private
+ */
+links.Graph.RingBuffer.prototype._getBySeq = function (seq) {
+    return this.items[this.start + seq - (this.count - this.length)];
+};
+
+/**
+ * Get the range of the dates in the buffer. The data points are supposed to
+ * be appended in chronological order.
+ * @return {Object | null} rowRange   An object with parameters min and max
+ *                                    (both Dates), or null when empty
+ */
+links.Graph.RingBuffer.prototype.getRowRange = function () {
+    if (this.length == 0) {
+        return null;
+    }
+    return {
+        min: new Date(this.get(0).date.valueOf()),
+        max: new Date(this.get(this.length - 1).date.valueOf())
+    };
+};
+
+/**
+ * Get the range of the values in the buffer
+ * @return {Object | null} dataRange   An object with parameters min and max
+ *                                     (both numbers), or null when there
+ *                                     are no values
+ */
+links.Graph.RingBuffer.prototype.getDataRange = function () {
+    if (this.minHead >= this.minQueue.length) {
+        return null;
+    }
+    return {
+        min: this._getBySeq(this.minQueue[this.minHead]).value,
+        max: this._getBySeq(this.maxQueue[this.maxHead]).value
+    };
+};
+
+
+/**
+ * @constructor links.Graph.MinMaxTree
+ * A segment tree containing the minimum and maximum value of a series, used
+ * to find the value range of an arbitrary interval of rows in O(log n),
+ * for example the rows which are currently visible.
+ *
+ * To limit the memory usage for large series, the leafs of the tree are
+ * buckets of BUCKET_SIZE rows. The rows of partially covered buckets are
+ * scanned directly when querying.
+ *
+ * @param {Array} data   An array containing objects with a parameter value.
+ *                       Elements can be undefined, and values can be null.
+ *                       The tree keeps a reference to this array, so changed
+ *                       rows can be updated via update(row).
+ */
+links.Graph.MinMaxTree = function (data) {
+    this.data = data || [];
+    this.buckets = Math.max(Math.ceil(this.data.length / links.Graph.MinMaxTree.BUCKET_SIZE), 1);
+
+    var ArrayType = (typeof Float64Array !== 'undefined') ? Float64Array : Array;
+    this.min = new ArrayType(2 * this.buckets);
+    this.max = new ArrayType(2 * this.buckets);
+
+    for (var bucket = 0; bucket < this.buckets; bucket++) {
+        this._calculateBucket(bucket);
+    }
+    for (var i = this.buckets - 1; i > 0; i--) {
+        this.min[i] = Math.min(this.min[2 * i], this.min[2 * i + 1]);
+        this.max[i] = Math.max(this.max[2 * i], this.max[2 * i + 1]);
+    }
+};
+
+links.Graph.MinMaxTree.BUCKET_SIZE = 32;
+
+/**
+ * Calculate the minimum and maximum value of the rows in a bucket, and store
+ * them in the leaf of the bucket.
+ * @param {Number} bucket   Index of the bucket
+ * @private
+ */
+links.Graph.MinMaxTree.prototype._calculateBucket = function (bucket) {
+    var size = links.Graph.MinMaxTree.BUCKET_SIZE;
+    var range = this._scan(bucket * size, (bucket + 1) * size - 1);
+    this.min[this.buckets + bucket] = range.min;
+    this.max[this.buckets + bucket] = range.max;
+};
+
+/**
+ * Find the minimum and maximum value of a range of rows by scanning them
+ * @param {Number} start   First row
+ * @param {Number} end     Last row (included)
+ * @return {Object} range  An object with parameters min and max. When there
+ *                         are no values, min is Infinity and max -Infinity
+ * @private
+ */
+links.Graph.MinMaxTree.prototype._scan = function (start, end) {
+    var data = this.data;
+    var min = Infinity;
+    var max = -Infinity;
+    for (var row = start, last = Math.min(end, data.length - 1); row <= last; row++) {
+        var item = data[row];
+        var value = item ? item.value : undefined;
+        if (value != null && !isNaN(value)) {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+    }
+    return {
+        min: min,
+        max: max
+    };
+};
+
+/**
+ * Update the tree after the value of a row has been changed
+ * @param {Number} row
+ */
+links.Graph.MinMaxTree.prototype.update = function (row) {
+    var bucket = Math.floor(row / links.Graph.MinMaxTree.BUCKET_SIZE);
+    if (bucket < 0 || bucket >= this.buckets) {
+        return;
+    }
+    this._calculateBucket(bucket);
+
+    var i = (this.buckets + bucket) >> 1;
+    while (i > 0) {
+        this.min[i] = Math.min(this.min[2 * i], this.min[2 * i + 1]);
+        this.max[i] = Math.max(this.max[2 * i], this.max[2 * i + 1]);
+        i = i >> 1;
+    }
+};
+
+/**
+ * Find the minimum and maximum value of a range of rows
+ * @param {Number} start   First row
+ * @param {Number} end     Last row (included)
+ * @return {Object | null} range   An object with parameters min and max
+ *                                 (both numbers), or null when there are no
+ *                                 values in the given range
+ */
+links.Graph.MinMaxTree.prototype.query = function (start, end) {
+    var size = links.Graph.MinMaxTree.BUCKET_SIZE;
+    start = Math.max(start, 0);
+    end = Math.min(end, this.data.length - 1);
+    if (end < start) {
+        return null;
+    }
+
+    var firstBucket = Math.floor(start / size);
+    var lastBucket = Math.floor(end / size);
+    var range;
+    if (lastBucket - firstBucket < 2) {
+        range = this._scan(start, end);
+    }
+    else {
+        // scan the partially covered buckets at both ends
+        var head = this._scan(start, (firstBucket + 1) * size - 1);
+        var tail = this._scan(lastBucket * size, end);
+        var min = Math.min(head.min, tail.min);
+        var max = Math.max(head.max, tail.max);
+
+        // query the tree for the fully covered buckets in between
+        var l = this.buckets + firstBucket + 1;
+        var r = this.buckets + lastBucket; // exclusive
+        while (l < r) {
+            if (l & 1) {
+                min = Math.min(min, this.min[l]);
+                max = Math.max(max, this.max[l]);
+                l++;
+            }
+            if (r & 1) {
+                r--;
+                min = Math.min(min, this.min[r]);
+                max = Math.max(max, this.max[r]);
+            }
+            l = l >> 1;
+            r = r >> 1;
+        }
+        range = {
+            min: min,
+            max: max
+        };
+    }
+
+    return (range.min <= range.max) ? range : null;
+};
+
+/**
+ * Get the minimum and maximum value of all rows
+ * @return {Object | null} range   An object with parameters min and max
+ *                                 (both numbers), or null when there are no
+ *                                 values
+ */
+links.Graph.MinMaxTree.prototype.getRange = function () {
+    return this.query(0, this.data.length - 1);
+};
+
+
 /**
  * Set a custom scale. Autoscaling will be disabled.
  * For example setScale(SCALE.MINUTES, 5) will result
@@ -1052,6 +1487,7 @@ links.Graph.prototype._create = function () {
     this.frame.canvas.axis.style.position = "relative";
     this.frame.canvas.axis.style.left = links.Graph.px(0);
     this.frame.canvas.axis.style.top = links.Graph.px(0);
+    this._setLayerLeft(this.frame.canvas.axis, 0);
     this.frame.canvas.appendChild(this.frame.canvas.axis);
     this.majorLabels = [];
 
@@ -1060,6 +1496,7 @@ links.Graph.prototype._create = function () {
     this.frame.canvas.graph.style.position = "absolute";
     this.frame.canvas.graph.style.left = links.Graph.px(0);
     this.frame.canvas.graph.style.top = links.Graph.px(0);
+    this._setLayerLeft(this.frame.canvas.graph, 0);
     //this.frame.canvas.graph.width = "800";   // width is adjusted lateron
     //this.frame.canvas.graph.height = "200";  // height is adjusted lateron
     this.frame.canvas.appendChild(this.frame.canvas.graph);
@@ -1176,6 +1613,9 @@ links.Graph.prototype._zoom = function(zoomFactor, zoomAroundDate) {
         // apply new dates
         this._applyRange(newStart, newEnd, zoomAroundDate);
 
+        if (this._updateAutoScaleRange()) {
+            this._redrawVerticalAxis();
+        }
         this._redrawHorizontalAxis();
         this._redrawData();
         this._redrawDataTooltip();
@@ -1201,6 +1641,9 @@ links.Graph.prototype._move = function(moveFactor) {
     this._applyRange(newStart, newEnd);
 
     // redraw
+    if (this._updateAutoScaleRange()) {
+        this._redrawVerticalAxis();
+    }
     this._redrawHorizontalAxis();
     this._redrawData();
 };
@@ -1368,6 +1811,7 @@ links.Graph.prototype._zoomVertical = function(zoomFactor, zoomAroundValue) {
  */
 links.Graph.prototype.redraw = function() {
     this._initSize();
+    this._updateAutoScaleRange();
 
     // Note: the order of drawing is important!
     this._redrawLegend();
@@ -1408,15 +1852,26 @@ links.Graph.prototype._initSize = function() {
     this.axisTextMajorHeight = parseInt(charDiv.offsetHeight);
     this.frame.canvas.axis.removeChild(charDiv);  // TODO: When using .redraw() via the browser event onresize, this gives an error in Chrome
 
+    // the horizontal axis and the data are drawn with a margin on both sides
+    // of at least half the visible width, so the drawn layers are at least
+    // twice as wide as the visible area and can be moved without redrawing
+    this.axisMargin = Math.max(800, Math.ceil(this.main.clientWidth / 2));
+
     // calculate the position of the axis
     this.axisOffset = this.main.clientHeight -
         this.axisTextMinorHeight -
         this.axisTextMajorHeight -
         2 * this.mainPadding;
 
-    // TODO: do not retrieve datarange here? -> initSize is executed during each redraw()
-    // retrieve the data range (this can take some time for large amounts of data)
-    //this.dataRange = this._getDataRange(this.data[0]); // TODO
+    this._updateVerticalRange();
+};
+
+/**
+ * Calculate the vertical range (vMin, vMax) from the data ranges of all
+ * series. The data ranges themselves are calculated when the data is read,
+ * or updated incrementally when points are appended.
+ */
+links.Graph.prototype._updateVerticalRange = function() {
     if (this.data.length > 0) {
         var verticalRange = null;
         for (var i = 0, imax = this.data.length; i < imax; i++) {
@@ -1454,6 +1909,79 @@ links.Graph.prototype._initSize = function() {
     }
 };
 
+/**
+ * When option vAutoScale is true, fit the vertical range (vStart, vEnd) to
+ * the data values inside the visible range.
+ * @return {boolean} changed   True if the vertical range is changed
+ */
+links.Graph.prototype._updateAutoScaleRange = function() {
+    if (!this.vAutoScale || !this.start || !this.end) {
+        return false;
+    }
+
+    var dataRange = this._getVisibleDataRange();
+    if (!dataRange) {
+        return false;
+    }
+
+    // add 5 percent so there is always some whitespace above and below
+    // the drawn data
+    var range = dataRange.max - dataRange.min;
+    if (range <= 0) {
+        range = 1;
+    }
+    var avg = (dataRange.max + dataRange.min) / 2;
+    var vStartNew = avg - range / 2 * 1.05;
+    var vEndNew = avg + range / 2 * 1.05;
+
+    var epsilon = (vEndNew - vStartNew) / 1000000;
+    var changed = (this.vStart == undefined || this.vEnd == undefined ||
+        Math.abs(vStartNew - this.vStart) > epsilon ||
+        Math.abs(vEndNew - this.vEnd) > epsilon);
+    if (changed) {
+        this.vStart = vStartNew;
+        this.vEnd = vEndNew;
+    }
+    return changed;
+};
+
+/**
+ * Calculate the minimum and maximum value of the visible data points of all
+ * visible series of type 'line'. The value range of the visible rows is
+ * retrieved from the value index of each series.
+ * @return {Object | null} dataRange   An object with parameters min and max
+ *                                     (both numbers), or null when there
+ *                                     are no visible values
+ */
+links.Graph.prototype._getVisibleDataRange = function() {
+    var dataRange = null;
+    for (var col = 0, colCount = this.data.length; col < colCount; col++) {
+        var graph = this.data[col];
+        if (!graph.valueIndex || !this._getLineVisible(col)) {
+            continue;
+        }
+
+        var rowRange = this._getVisbleRowRange(graph.data, this.start, this.end,
+            'line', graph.autoScaleRowRange, graph.buffer);
+        graph.autoScaleRowRange = rowRange;
+
+        var range = graph.valueIndex.query(rowRange.start, rowRange.end);
+        if (range) {
+            if (dataRange) {
+                dataRange.min = Math.min(dataRange.min, range.min);
+                dataRange.max = Math.max(dataRange.max, range.max);
+            }
+            else {
+                dataRange = {
+                    min: range.min,
+                    max: range.max
+                };
+            }
+        }
+    }
+    return dataRange;
+};
+
 /**
  * Draw the horizontal axis in the graph, containing grid, axis, minor and
  * major labels
@@ -1466,6 +1994,7 @@ links.Graph.prototype._redrawHorizontalAxis = function () {
         this.frame.canvas.axis.removeChild(this.frame.canvas.axis.lastChild);
     }
     this.majorLabels = [];
+    this._setLayerLeft(this.frame.canvas.axis, 0);
 
     // resize the horizontal axis
     this.frame.style.left = links.Graph.px(this.main.axisLeft.clientWidth + this.mainPadding);
@@ -1593,11 +2122,40 @@ links.Graph.prototype._redrawHorizontalAxis = function () {
 };
 
 
+/**
+ * Set the horizontal position of a layer: the horizontal axis or the data
+ * canvas. When supported by the browser, the layer is moved via a css
+ * transform, which only needs compositing and no layout of the page.
+ * @param {Element} layer
+ * @param {Number} left    Position in pixels
+ * @private
+ */
+links.Graph.prototype._setLayerLeft = function (layer, left) {
+    var transform = links.Graph.getTransformProperty();
+    layer.layerLeft = left;
+    if (transform) {
+        layer.style[transform] = 'translate3d(' + left + 'px, 0px, 0px)';
+    }
+    else {
+        layer.style.left = links.Graph.px(left);
+    }
+};
+
+/**
+ * Get the horizontal position of a layer, set via _setLayerLeft
+ * @param {Element} layer
+ * @return {Number} left    Position in pixels
+ * @private
+ */
+links.Graph.prototype._getLayerLeft = function (layer) {
+    return layer.layerLeft || 0;
+};
+
 /**
  * Reposition the major labels of the horizontal axis
  */
 links.Graph.prototype._redrawAxisLeftMajorLabel = function() {
-    var offset = parseFloat(this.frame.canvas.axis.style.left);
+    var offset = this._getLayerLeft(this.frame.canvas.axis);
 
     var lastBelowZero = null;
     var firstAboveZero = null;
@@ -1886,11 +2444,21 @@ links.Graph.prototype._redrawData = function() {
     var graphWidth = right - left;
     var height = this.axisOffset;
 
-    graph.style.left = links.Graph.px(left);
+    this._setLayerLeft(graph, left);
     graph.width = graphWidth;
     graph.height = height;
 
-    var offset = parseFloat(graph.style.left);
+    var offset = left;
+
+    // store the conversion used for the canvas contents, needed to draw
+    // appended data on top of the current contents
+    this.canvasRange = {
+        'start': start.valueOf(),
+        'end': end.valueOf(),
+        'ttsOffset': this.ttsOffset,
+        'ttsFactor': this.ttsFactor,
+        'left': offset
+    };
 
     // draw the graph(s)
     for (var col = 0, colCount = this.data.length; col < colCount; col++) {
@@ -1903,76 +2471,45 @@ links.Graph.prototype._redrawData = function() {
         var visible = this._getLineVisible(col);
         var type = this.data[col].type || 'line';
         var data = this.data[col].data;
-        var d;
+        var row, d;
 
         // determine the first and last row inside the visible area
         var rowRange = this._getVisbleRowRange(data, start, end, type,
-            this.data[col].visibleRowRange);
+            this.data[col].visibleRowRange, this.data[col].buffer);
         this.data[col].visibleRowRange = rowRange;
         var rowStep = this._calculateRowStep(rowRange);
 
         if (visible && rowRange) {
             switch (type) {
                 case 'line':
+                    // get the cached paths of this series, if supported
+                    var paths = this._getLinePaths(col, style, radius,
+                        rowRange, rowStep, offset);
+
                     if (style == "line" || style == "dot-line") {
                         // draw line
                         ctx.strokeStyle = color;
                         ctx.lineWidth = width;
-
-                        ctx.beginPath();
-                        var row = rowRange.start;
-                        while (row <= rowRange.end) {
-                            // find the first data row with a non-null value
-                            while (row <= rowRange.end && data[row].value == null) {
-                                row += rowStep;
-                            }
-                            if (row <= rowRange.end) {
-                                // move to the first non-null data point
-                                value = data[row].value;
-                                var x = this.timeToScreen(data[row].date) - offset;
-                                var y = this.yToScreen(value);
-                                ctx.moveTo(x, y);
-
-                                /* TODO: implement fill style
-                                 ctx.moveTo(x, this.yToScreen(0));
-                                 ctx.lineTo(x, y);
-                                 */
-                                row += rowStep;
-                            }
-
-                            // draw lines as long as data values are not null
-                            while (row <= rowRange.end && (value = data[row].value) != null) {
-                                x = this.timeToScreen(data[row].date) - offset;
-                                y = this.yToScreen(value);
-                                ctx.lineTo(x, y);
-                                row += rowStep;
-                            }
-
-                            /* TODO: implement fill style
-                             ctx.lineTo(x, this.yToScreen(0));
-                             */
+                        if (paths) {
+                            ctx.stroke(paths.line);
+                        }
+                        else {
+                            ctx.beginPath();
+                            this._buildLinePath(ctx, data, rowRange, rowStep, offset);
+                            ctx.stroke();
                         }
-
-                        /* TODO: implement fill style
-                         ctx.fillStyle = "rgba(255,255,0, 0.5)";
-                         ctx.fill();
-                         */
-
-                        ctx.stroke();
                     }
 
-                    if (type == 'line' && (style == "dot" || style == "dot-line")) {
+                    if (style == "dot" || style == "dot-line") {
                         // draw dots
-                        var diameter = 2 * radius;
                         ctx.fillStyle = color;
-
-                        for (row = rowRange.start; row <= rowRange.end; row += rowStep) {
-                            var value = data[row].value;
-                            if (value != null) {
-                                x = this.timeToScreen(data[row].date) - offset;
-                                y = this.yToScreen(value);
-                                ctx.fillRect(x - radius, y - radius, diameter, diameter);
-                            }
+                        if (paths) {
+                            ctx.fill(paths.dots);
+                        }
+                        else {
+                            ctx.beginPath();
+                            this._buildDotsPath(ctx, data, rowRange, rowStep, offset, radius);
+                            ctx.fill();
                         }
                     }
                     break;
@@ -2028,6 +2565,197 @@ links.Graph.prototype._redrawData = function() {
     }
 };
 
+/**
+ * Get the paths for the line and dots of a series of type 'line', for the
+ * current conversion of dates and values to the screen. The paths are
+ * cached per series, and rebuilt only when the data, style, visible rows,
+ * or conversion of the series is changed. Line color and width are applied
+ * when drawing, so they do not require rebuilding the paths.
+ * @param {Number} col        The column (series) number
+ * @param {String} style      The line style: "line", "dot", or "dot-line"
+ * @param {Number} radius     The radius of the dots
+ * @param {Object} rowRange   The visible rows, with parameters start and end
+ * @param {Number} rowStep    The step size for iterating over the rows
+ * @param {Number} offset     The left position of the graph canvas
+ * @return {Object | undefined} paths   An object with Path2D objects line and
+ *                                      dots, or undefined when Path2D is
+ *                                      not supported by the browser
+ * @private
+ */
+links.Graph.prototype._getLinePaths = function(col, style, radius, rowRange, rowStep, offset) {
+    if (typeof Path2D === 'undefined') {
+        return undefined;
+    }
+
+    var graph = this.data[col];
+    var key = [
+        this.ttsOffset, this.ttsFactor, offset,
+        this.vStart, this.vEnd, this.axisOffset,
+        rowRange.start, rowRange.end, rowStep,
+        style, radius, graph.dataVersion || 0
+    ].join(',');
+
+    var paths = graph.pathCache;
+    if (!paths || paths.key != key) {
+        paths = {
+            'key': key,
+            'line': new Path2D(),
+            'dots': new Path2D()
+        };
+        if (style == "line" || style == "dot-line") {
+            this._buildLinePath(paths.line, graph.data, rowRange, rowStep, offset);
+        }
+        if (style == "dot" || style == "dot-line") {
+            this._buildDotsPath(paths.dots, graph.data, rowRange, rowStep, offset, radius);
+        }
+        graph.pathCache = paths;
+    }
+
+    return paths;
+};
+
+/**
+ * Add the line of a series to a path. Rows with a value null create a gap
+ * in the line.
+ * @param {CanvasRenderingContext2D | Path2D} path   The path to add the line to
+ * @param {Array} data        Table containing objects with parameters date
+ *                            and value
+ * @param {Object} rowRange   The rows to be drawn, with parameters start and end
+ * @param {Number} rowStep    The step size for iterating over the rows
+ * @param {Number} offset     The left position of the graph canvas
+ * @private
+ */
+links.Graph.prototype._buildLinePath = function(path, data, rowRange, rowStep, offset) {
+    var row = rowRange.start;
+    var value, x, y;
+    while (row <= rowRange.end) {
+        // find the first data row with a non-null value
+        while (row <= rowRange.end && data[row].value == null) {
+            row += rowStep;
+        }
+        if (row <= rowRange.end) {
+            // move to the first non-null data point
+            value = data[row].value;
+            x = this.timeToScreen(data[row].date) - offset;
+            y = this.yToScreen(value);
+            path.moveTo(x, y);
+
+            /* TODO: implement fill style
+             path.moveTo(x, this.yToScreen(0));
+             path.lineTo(x, y);
+             */
+            row += rowStep;
+        }
+
+        // draw lines as long as data values are not null
+        while (row <= rowRange.end && (value = data[row].value) != null) {
+            x = this.timeToScreen(data[row].date) - offset;
+            y = this.yToScreen(value);
+            path.lineTo(x, y);
+            row += rowStep;
+        }
+
+        /* TODO: implement fill style
+         path.lineTo(x, this.yToScreen(0));
+         */
+    }
+};
+
+/**
+ * Add the dots of a series to a path, as squares with the given radius
+ * @param {CanvasRenderingContext2D | Path2D} path   The path to add the dots to
+ * @param {Array} data        Table containing objects with parameters date
+ *                            and value
+ * @param {Object} rowRange   The rows to be drawn, with parameters start and end
+ * @param {Number} rowStep    The step size for iterating over the rows
+ * @param {Number} offset     The left position of the graph canvas
+ * @param {Number} radius     The radius of the dots
+ * @private
+ */
+links.Graph.prototype._buildDotsPath = function(path, data, rowRange, rowStep, offset, radius) {
+    var diameter = 2 * radius;
+    for (var row = rowRange.start; row <= rowRange.end; row += rowStep) {
+        var value = data[row].value;
+        if (value != null) {
+            var x = this.timeToScreen(data[row].date) - offset;
+            var y = this.yToScreen(value);
+            path.rect(x - radius, y - radius, diameter, diameter);
+        }
+    }
+};
+
+/**
+ * Draw a range of rows of a line on top of the current contents of the graph
+ * canvas. This is used to draw appended data without redrawing all data.
+ * The line is connected to the row preceding the first row.
+ * @param {Number} col       The column (series) number
+ * @param {Number} fromRow   The first row to be drawn
+ * @param {Number} toRow     The last row to be drawn
+ * @private
+ */
+links.Graph.prototype._redrawDataSegment = function(col, fromRow, toRow) {
+    var range = this.canvasRange;
+    if (!range || !this._getLineVisible(col)) {
+        return;
+    }
+
+    var graph = this.data[col];
+    var data = graph.data;
+    var firstRow = graph.buffer ? graph.buffer.start : 0;
+    var style = this._getLineStyle(col);
+    var color = this._getLineColor(col);
+    var ctx = this.frame.canvas.graph.getContext("2d");
+    var toCanvas = function (date) {
+        return (date.valueOf() - range.ttsOffset) * range.ttsFactor - range.left;
+    };
+    var row, d;
+
+    if (style == "line" || style == "dot-line") {
+        // draw line
+        ctx.strokeStyle = color;
+        ctx.lineWidth = this._getLineWidth(col);
+        ctx.beginPath();
+
+        var drawing = false;
+        row = Math.max(fromRow - 1, firstRow);
+        while (row <= toRow) {
+            d = data[row];
+            if (d.value != null) {
+                var x = toCanvas(d.date);
+                var y = this.yToScreen(d.value);
+                if (drawing) {
+                    ctx.lineTo(x, y);
+                }
+                else {
+                    ctx.moveTo(x, y);
+                    drawing = true;
+                }
+            }
+            else {
+                drawing = false;
+            }
+            row++;
+        }
+
+        ctx.stroke();
+    }
+
+    if (style == "dot" || style == "dot-line") {
+        // draw dots
+        var radius = this._getLineRadius(col);
+        var diameter = 2 * radius;
+        ctx.fillStyle = color;
+
+        for (row = fromRow; row <= toRow; row++) {
+            d = data[row];
+            if (d.value != null) {
+                ctx.fillRect(toCanvas(d.date) - radius, this.yToScreen(d.value) - radius,
+                    diameter, diameter);
+            }
+        }
+    }
+};
+
 /**
  * Calculate the row step (skipping datapoints in case of much data)
  * @param {Object} rowRange  Object containing parameters
@@ -2067,7 +2795,7 @@ links.Graph.prototype._redrawDataTooltip = function () {
             var label = tooltip.label;
 
             var graph = this.frame.canvas.graph;
-            var offset = parseFloat(graph.style.left) + this.axisMargin;
+            var offset = this._getLayerLeft(graph) + this.axisMargin;
             var radius = dataPoint.radius || 4;
             var color = dataPoint.color || '#4d4d4d';
             var left = this.timeToScreen(dataPoint.date) + offset;
@@ -2186,94 +2914,123 @@ links.Graph.prototype._setTooltip = function (dataPoint) {
 links.Graph.prototype._findClosestDataPoint = function (date, value) {
     var maxDistance = 30; // px
     var winner = undefined;
-    var graph = this;
-    function isVisible (dataPoint) {
-        return dataPoint.date >= graph.start &&
-            dataPoint.date <= graph.end &&
-            dataPoint.value >= graph.vStart &&
-            dataPoint.value <= graph.vEnd
-    }
+    var time = date.valueOf();
+    var maxTimeDistance = maxDistance / this.ttsFactor;
+    var y = this.yToScreen(value);
+    var start = this.start.valueOf();
+    var end = this.end.valueOf();
 
     for (var col = 0, colCount = this.data.length; col < colCount; col++) {
         var visible = this._getLineVisible(col);
         var rowRange = this.data[col].visibleRowRange;
         var data = this.data[col].data;
         var type = this.data[col].type;
+        var field = (type == 'area') ? 'start' : 'date';
 
-        if (visible && rowRange) {
+        if (visible && rowRange && rowRange.end >= rowRange.start) {
+            // events and areas are displayed at the top of the graph
+            var labelValue = (type == 'event' || type == 'area') ?
+                this.screenToY(16) : undefined;  // TODO: use the real font height
+
+            // find the first data point within maxDistance left from the
+            // date, and align it with the rows which are actually drawn
             var rowStep = this._calculateRowStep(rowRange);
-            var row = rowRange.start;
+            var row = this._findRow(data, field, time - maxTimeDistance,
+                rowRange.start, rowRange.end);
+            row = rowRange.start + Math.ceil((row - rowRange.start) / rowStep) * rowStep;
+
             while (row <= rowRange.end) {
                 var dataPoint = data[row];
-                if (type == 'event') {
-                    dataPoint = {
-                        date: dataPoint.date,
-                        value: this.screenToY(16), // TODO: use the real font height
-                        text: dataPoint.text,
-                        title: dataPoint.title
-                    };
-                }
-                else if (type == 'area') {
-                    dataPoint = {
-                        date: dataPoint.start,
-                        value: this.screenToY(16), // TODO: use the real font height
-                        text: dataPoint.text,
-                        title: dataPoint.title
-                    };
+                var pointDate = dataPoint[field];
+                var pointTime = pointDate.valueOf();
+                if (pointTime - time > maxTimeDistance) {
+                    // skip the rest of the data
+                    break;
                 }
 
-                if (dataPoint.value != null) {
-                    // first data point found right from x.
-                    var dateDistance = Math.abs(dataPoint.date - date) * this.ttsFactor;
-                    if (dateDistance < maxDistance) {
-                        var valueDistance = Math.abs(this.yToScreen(dataPoint.value) - this.yToScreen(value));
-                        if ((valueDistance < maxDistance) && isVisible(dataPoint)) {
-                            var distance = Math.sqrt(
-                                    dateDistance * dateDistance +
-                                    valueDistance * valueDistance);
-                            if (!winner || distance < winner.distance) {
-                                // we have a new winner
-                                var color = this._getLineColor(col);
-                                var radius;
-                                if (type == 'event' || type == 'area') {
-                                    radius = this._getLineWidth(col);
-                                    color = this._getTextColor(col);
-                                }
-                                else if (this._getLineStyle(col) == 'line') {
-                                    radius = this._getLineWidth(col) * 2;
-                                }
-                                else {
-                                    radius = this._getLineRadius(col) * 2;
-                                }
-                                radius = Math.max(radius, 4);
-
-                                winner = {
-                                    distance: distance,
-                                    dataPoint: {
-                                        date: dataPoint.date,
-                                        //value: (dataPoint.value != undefined) ? dataPoint.value : this.screenToY(10),
-                                        value: dataPoint.value,
-                                        title: dataPoint.title,
-                                        text: dataPoint.text,
-                                        color: color,
-                                        radius: radius,
-                                        line: col
-                                    }
-                                };
-                            }
+                var pointValue = (labelValue != undefined) ? labelValue : dataPoint.value;
+                if (pointValue != null) {
+                    var dateDistance = Math.abs(pointTime - time) * this.ttsFactor;
+                    var valueDistance = Math.abs(this.yToScreen(pointValue) - y);
+                    if (dateDistance < maxDistance && valueDistance < maxDistance &&
+                        pointTime >= start && pointTime <= end &&
+                        pointValue >= this.vStart && pointValue <= this.vEnd) {
+                        var distance = Math.sqrt(
+                            dateDistance * dateDistance +
+                                valueDistance * valueDistance);
+                        if (!winner || distance < winner.distance) {
+                            winner = {
+                                distance: distance,
+                                col: col,
+                                date: pointDate,
+                                value: pointValue,
+                                dataPoint: dataPoint
+                            };
                         }
                     }
-                    else if (dataPoint.date > date) {
-                        // skip the rest of the data
-                        row = rowRange.end;
-                    }
                 }
                 row += rowStep;
             }
         }
     }
 
-    return winner ? winner.dataPoint : undefined;
+    if (!winner) {
+        return undefined;
+    }
+
+    // create the data point for the winner
+    var col = winner.col;
+    var type = this.data[col].type;
+    var color = this._getLineColor(col);
+    var radius;
+    if (type == 'event' || type == 'area') {
+        radius = this._getLineWidth(col);
+        color = this._getTextColor(col);
+    }
+    else if (this._getLineStyle(col) == 'line') {
+        radius = this._getLineWidth(col) * 2;
+    }
+    else {
+        radius = this._getLineRadius(col) * 2;
+    }
+    radius = Math.max(radius, 4);
+
+    return {
+        date: winner.date,
+        value: winner.value,
+        title: winner.dataPoint.title,
+        text: winner.dataPoint.text,
+        color: color,
+        radius: radius,
+        line: col
+    };
+};
+
+/**
+ * Find the first row with a date larger than or equal to the given time,
+ * using a binary search. The data must be sorted by the given field.
+ * @param {Array} data      table containing objects with a date field
+ * @param {String} field    name of the date field, for example 'date'
+ * @param {Number} time     timestamp to search for
+ * @param {Number} start    first row of the range to search in
+ * @param {Number} end      last row of the range to search in
+ * @return {Number} row     The found row. Returns end + 1 when all rows in
+ *                          the range are smaller than time
+ * @private
+ */
+links.Graph.prototype._findRow = function (data, field, time, start, end) {
+    var low = start;
+    var high = end + 1;
+    while (low < high) {
+        var middle = (low + high) >> 1;
+        if (data[middle][field].valueOf() < time) {
+            low = middle + 1;
+        }
+        else {
+            high = middle;
+        }
+    }
+    return low;
 };
 
 /**
@@ -2437,12 +3194,15 @@ links.Graph.prototype._redrawLegend = function() {
  * @param {String} type      Type of data. 'line' (default), 'area', or 'event'
  * @param {Object} oldRowRange  previous row range, can serve as start
  *                                to find the current visible range faster.
+ * @param {links.Graph.RingBuffer} [buffer]  Optional ring buffer of a streamed
+ *                                series. If provided, only the rows
+ *                                currently held by the buffer are searched.
  * @return {object}         Range object containing start row and end row
  *                            range.start {int}  row number of first visible row
  *                            range.end   {int}  row number of last visible row +1
  *                                               (this can be the rowcount +1)
  */
-links.Graph.prototype._getVisbleRowRange = function(data, start, end, type, oldRowRange) {
+links.Graph.prototype._getVisbleRowRange = function(data, start, end, type, oldRowRange, buffer) {
     if (!data) {
         data = [];
     }
@@ -2452,12 +3212,13 @@ links.Graph.prototype._getVisbleRowRange = function(data, start, end, type, oldR
         fieldStart = 'start';
         fieldEnd = 'end';
     }
-    var rowCount = data.length;
+    var firstRow = buffer ? buffer.start : 0;
+    var lastRow = buffer ? (buffer.start + buffer.length - 1) : (data.length - 1);
 
     // initialize
     var rowRange = {
-        start: 0,
-        end: (rowCount-1)
+        start: firstRow,
+        end: lastRow
     };
     if (oldRowRange != null) {
         rowRange.start = oldRowRange.start;
@@ -2465,20 +3226,26 @@ links.Graph.prototype._getVisbleRowRange = function(data, start, end, type, oldR
     }
 
     // check if the current range does not exceed the actual number of rows
-    if (rowRange.start > rowCount - 1 && rowCount > 0) {
-        rowRange.start = rowCount - 1;
+    if (rowRange.start > lastRow && lastRow >= firstRow) {
+        rowRange.start = lastRow;
+    }
+    if (rowRange.start < firstRow) {
+        rowRange.start = firstRow;
     }
 
-    if (rowRange.end > rowCount - 1) {
-        rowRange.end = rowCount - 1;
+    if (rowRange.end > lastRow) {
+        rowRange.end = lastRow;
+    }
+    if (rowRange.end < firstRow - 1) {
+        rowRange.end = firstRow - 1;
     }
 
     // find the first visible row. Start searching at the previous first visible row
-    while (rowRange.start > 0 &&
+    while (rowRange.start > firstRow &&
         data[rowRange.start][fieldStart].valueOf() > start.valueOf()) {
         rowRange.start--;
     }
-    while (rowRange.start < rowCount-1 &&
+    while (rowRange.start < lastRow &&
         data[rowRange.start][fieldStart].valueOf() < start.valueOf()) {
         rowRange.start++;
     }
@@ -2488,7 +3255,7 @@ links.Graph.prototype._getVisbleRowRange = function(data, start, end, type, oldR
         data[rowRange.end][fieldEnd].valueOf() > end.valueOf()) {
         rowRange.end--;
     }
-    while (rowRange.end < rowCount-1 &&
+    while (rowRange.end < lastRow &&
         data[rowRange.end][fieldEnd].valueOf() < end.valueOf()) {
         rowRange.end++;
     }
@@ -2822,8 +3589,8 @@ links.Graph.prototype._onMouseDown = function(event) {
     this.startEnd = new Date(this.end.valueOf());
     this.startVStart = this.vStart;
     this.startVEnd = this.vEnd;
-    this.startGraphLeft = parseFloat(this.frame.canvas.graph.style.left);
-    this.startAxisLeft = parseFloat(this.frame.canvas.axis.style.left);
+    this.startGraphLeft = this._getLayerLeft(this.frame.canvas.graph);
+    this.startAxisLeft = this._getLayerLeft(this.frame.canvas.axis);
 
     this.frame.style.cursor = 'move';
 
@@ -2879,43 +3646,59 @@ links.Graph.prototype._onMouseMove = function (event) {
 
     // adjust vertical axis setting when needed
     // TODO: put that in a separate method _applyVerticalRange()
-    var vStartNew = this.startVStart + diffY;
-    var vEndNew = this.startVEnd + diffY;
-    var d;
-    if (vStartNew < this.vMin) {
-        d = (this.vMin - vStartNew);
-        vStartNew += d;
-        vEndNew += d;
-    }
-    if (vEndNew > this.vMax) {
-        d = (vEndNew - this.vMax);
-        vStartNew -= d;
-        vEndNew -= d;
-    }
-    var epsilon = (this.vEnd - this.vStart) / 1000000;
-    var movedVertically = (Math.abs(vStartNew - this.vStart) > epsilon ||
-        Math.abs(vEndNew - this.vEnd) > epsilon);
-    if (movedVertically) {
-        this.vStart = vStartNew;
-        this.vEnd = vEndNew;
+    var movedVertically;
+    if (this.vAutoScale) {
+        // fit the vertical range to the visible data
+        movedVertically = this._updateAutoScaleRange();
+    }
+    else {
+        var vStartNew = this.startVStart + diffY;
+        var vEndNew = this.startVEnd + diffY;
+        var d;
+        if (vStartNew < this.vMin) {
+            d = (this.vMin - vStartNew);
+            vStartNew += d;
+            vEndNew += d;
+        }
+        if (vEndNew > this.vMax) {
+            d = (vEndNew - this.vMax);
+            vStartNew -= d;
+            vEndNew -= d;
+        }
+        var epsilon = (this.vEnd - this.vStart) / 1000000;
+        movedVertically = (Math.abs(vStartNew - this.vStart) > epsilon ||
+            Math.abs(vEndNew - this.vEnd) > epsilon);
+        if (movedVertically) {
+            this.vStart = vStartNew;
+            this.vEnd = vEndNew;
+        }
     }
 
     if ((!this.redrawWhileMoving ||
         Math.abs(this.startAxisLeft + diffX) < this.axisMargin) &&
         !movedVertically) {
         // move the horizontal axis and data(this is fast)
-        this.frame.canvas.axis.style.left = links.Graph.px(this.startAxisLeft + diffX);
-        this.frame.canvas.graph.style.left = links.Graph.px(this.startGraphLeft + diffX);
+        this._setLayerLeft(this.frame.canvas.axis, this.startAxisLeft + diffX);
+        this._setLayerLeft(this.frame.canvas.graph, this.startGraphLeft + diffX);
     }
     else {
-        // redraw the horizontal and vertical axis and the data (this is slow)
-        this._redrawVerticalAxis();
+        // redraw the vertical axis when moved vertically, the horizontal axis
+        // when its margin is exceeded, and the data (this is slow)
+        var axisLeftWidth = this.main.axisLeft ? this.main.axisLeft.clientWidth : undefined;
+        if (movedVertically) {
+            this._redrawVerticalAxis();
+        }
 
-        this.frame.canvas.axis.style.left = links.Graph.px(0);
-        this.startAxisLeft = -diffX;
-        this._redrawHorizontalAxis();
+        if (Math.abs(this.startAxisLeft + diffX) < this.axisMargin &&
+            this.main.axisLeft.clientWidth == axisLeftWidth) {
+            // the tick labels of the horizontal axis are not changed
+            this._setLayerLeft(this.frame.canvas.axis, this.startAxisLeft + diffX);
+        }
+        else {
+            this.startAxisLeft = -diffX;
+            this._redrawHorizontalAxis();
+        }
 
-        this.frame.canvas.graph.style.left = links.Graph.px(0);
         this.startGraphLeft = -diffX - this.axisMargin;
         this._redrawData();
     }
@@ -2961,8 +3744,10 @@ links.Graph.prototype._onMouseOut = function (event) {
         }
     }
 
-    if (links.Graph.isOutside(event, this.frame))
+    if (links.Graph.isOutside(event, this.frame)) {
+        this.hoverPosition = undefined;
         this._setTooltip(undefined);
+    }
 }
 
 /**
@@ -2984,13 +3769,43 @@ links.Graph.prototype._onMouseHover = function (event) {
         return;
     }
 
-    var mouseX = links.Graph._getPageX(event);
-    var mouseY = links.Graph._getPageY(event);
+    // the tooltip is updated at most once per animation frame, using the
+    // latest mouse position
+    this.hoverPosition = {
+        'x': links.Graph._getPageX(event),
+        'y': links.Graph._getPageY(event)
+    };
+    if (!this.hoverRequested) {
+        this.hoverRequested = true;
+        var me = this;
+        links.Graph.requestAnimationFrame(function () {
+            me.hoverRequested = false;
+            me._updateHover();
+        });
+    }
+};
+
+/**
+ * Update the tooltip for the last hovered mouse position
+ * @private
+ */
+links.Graph.prototype._updateHover = function () {
+    var position = this.hoverPosition;
+    if (!position || this.leftButtonDown) {
+        return;
+    }
+
+    var mouseX = position.x;
+    var mouseY = position.y;
     var offsetX = links.Graph._getAbsoluteLeft(this.frame.canvas);
     var offsetY = links.Graph._getAbsoluteTop(this.frame.canvas);
 
+    // the graph canvas can be shifted (auto scrolling of streamed data)
+    // without the conversion factor being recalculated
+    var shift = this._getLayerLeft(this.frame.canvas.graph) + this.axisMargin;
+
     // calculate the timestamp from the mouse position
-    var date = this._screenToTime(mouseX - offsetX);
+    var date = this._screenToTime(mouseX - offsetX - shift);
     var value = this.screenToY(mouseY - offsetY);
 
     // find the value closest to the current date
@@ -3007,11 +3822,13 @@ links.Graph.prototype._onMouseUp = function (event) {
     this.frame.style.cursor = 'auto';
     this.leftButtonDown = false;
 
-    this.frame.canvas.axis.style.left = links.Graph.px(0);
-    this._redrawHorizontalAxis();
-
-    this.frame.canvas.graph.style.left = links.Graph.px(0);
-    this._redrawData();
+    // the moved layers only need to be redrawn when moved further than their
+    // margin, which can happen when redrawWhileMoving is false
+    if (Math.abs(this._getLayerLeft(this.frame.canvas.axis)) >= this.axisMargin) {
+        this._redrawHorizontalAxis();
+        this._redrawData();
+        this._redrawAxisLeftMajorLabel();
+    }
 
     // fire a rangechanged event
     var properties = {
@@ -3412,12 +4229,194 @@ links.Graph.prototype.setValueRange = function(start, end, redrawNow) {
 };
 
 /**
- * Adjust the vertical range to auto fit the contents
+ * Adjust the vertical range to auto fit the contents. When option vAutoScale
+ * is true, the range is fitted to the visible data only.
  */
 links.Graph.prototype.setValueRangeAuto = function() {
     this.setValueRange(undefined, undefined);
 };
 
+/**
+ * Append data points to a series, for example for live data. The series is
+ * backed by a ring buffer with a fixed capacity (option streamCapacity):
+ * when the buffer is full, the oldest data points are removed.
+ *
+ * The date and value ranges are updated incrementally, and only the new
+ * segment of the line is drawn, so appending a point does not depend on the
+ * amount of data in the graph. When option streamAutoScroll is true and
+ * the newest data point was visible, the visible range is moved along with
+ * the new data.
+ *
+ * Only series of type 'line' can be streamed.
+ *
+ * @param {Number} series   Index of the series (zero based). When the series
+ *                          does not yet exist, it is created.
+ * @param {Array} dates     An array with Dates or timestamps, in
+ *                          chronological order
+ * @param {Array} values    An array with the values, with the same length
+ *                          as dates. Values can be null or NaN, which
+ *                          leaves a gap in the line.
+ */
+links.Graph.prototype.appendPoints = function (series, dates, values) {
+    series = parseInt(series);
+    if (isNaN(series) || series < 0) {
+        throw new Error('Invalid series number "' + series + '"');
+    }
+    if (!dates || !values || dates.length != values.length) {
+        throw new Error('Arrays dates and values must have the same length');
+    }
+
+    var created = false;
+    while (this.data.length <= series) {
+        this.data.push({
+            "label": "",
+            "type": undefined,
+            "dataRange": undefined,
+            "rowRange": undefined,
+            "visibleRowRange": undefined,
+            "data": []
+        });
+        created = true;
+    }
+
+    var graph = this.data[series];
+    var type = graph.type || 'line';
+    if (graph.shared) {
+        throw new Error('Cannot append points to a shared data set');
+    }
+    if (type != 'line') {
+        throw new Error('Cannot append points to a dataset of type "' + type + '"');
+    }
+    if (!graph.buffer) {
+        this._createBuffer(graph);
+    }
+    var buffer = graph.buffer;
+
+    // remember the state before appending the new points
+    var lastDate = (buffer.length > 0) ? buffer.get(buffer.length - 1).date.valueOf() : undefined;
+    var wasVisible = (lastDate != undefined && this.start != null && this.end != null &&
+        lastDate >= this.start.valueOf() && lastDate <= this.end.valueOf());
+    var bufferStart = buffer.start;
+    var evicted = false;
+
+    for (var i = 0, len = dates.length; i < len; i++) {
+        var value = (values[i] != null) ? Number(values[i]) : null;
+        var removed = buffer.push({
+            "date": new Date(dates[i].valueOf()),
+            "value": (value != null && !isNaN(value)) ? value : null
+        });
+        if (removed) {
+            evicted = true;
+        }
+
+        var index = (buffer.start + buffer.length - 1) % buffer.capacity;
+        graph.valueIndex.update(index);
+        graph.valueIndex.update(index + buffer.capacity);
+    }
+
+    // when the start of the buffer wrapped around, the rows are located
+    // one capacity lower in the items array
+    if (evicted && buffer.start < bufferStart && graph.visibleRowRange) {
+        graph.visibleRowRange.start -= buffer.capacity;
+        graph.visibleRowRange.end -= buffer.capacity;
+    }
+    if (evicted && buffer.start < bufferStart && graph.autoScaleRowRange) {
+        graph.autoScaleRowRange.start -= buffer.capacity;
+        graph.autoScaleRowRange.end -= buffer.capacity;
+    }
+
+    graph.rowRange = buffer.getRowRange();
+    graph.dataRange = buffer.getDataRange();
+    graph.dataVersion = (graph.dataVersion || 0) + 1;
+
+    if (!this.canvasRange) {
+        // the graph is not yet drawn
+        return;
+    }
+    if (created) {
+        // the legend must be updated too
+        this.redraw();
+        return;
+    }
+
+    this._updateVerticalRange();
+
+    var redrawn = false;
+    if (this.streamAutoScroll && wasVisible && !this.leftButtonDown && !this.touchDown) {
+        var diff = graph.rowRange.max.valueOf() - this.end.valueOf();
+        if (diff > 0) {
+            var oldStart = this.start.valueOf();
+            this._applyRange(new Date(this.start.valueOf() + diff),
+                new Date(this.end.valueOf() + diff));
+            var dx = (this.start.valueOf() - oldStart) * this.ttsFactor;
+
+            var axis = this.frame.canvas.axis;
+            var axisLeft = this._getLayerLeft(axis) - dx;
+            if (Math.abs(axisLeft) < this.axisMargin) {
+                // shift the axis and data (this is fast)
+                var canvas = this.frame.canvas.graph;
+                this._setLayerLeft(axis, axisLeft);
+                this._setLayerLeft(canvas, this._getLayerLeft(canvas) - dx);
+            }
+            else {
+                // redraw the horizontal axis and the data (this is slow)
+                this._redrawHorizontalAxis();
+                this._redrawData();
+                redrawn = true;
+            }
+            this._redrawAxisLeftMajorLabel();
+        }
+    }
+
+    if (!redrawn && this._updateAutoScaleRange()) {
+        // the value range of the visible data is changed
+        this._redrawVerticalAxis();
+        this._redrawHorizontalAxis(); // -> width of the vertical axis can be changed
+        this._redrawData();
+        redrawn = true;
+    }
+
+    if (!redrawn) {
+        var firstNew = buffer.start + buffer.length - dates.length;
+        if (firstNew < buffer.start ||
+            (evicted && buffer.get(0).date.valueOf() >= this.canvasRange.start)) {
+            // removed data points are visible, redraw everything
+            this._redrawData();
+        }
+        else if (dates.length > 0) {
+            this._redrawDataSegment(series, firstNew, buffer.start + buffer.length - 1);
+            graph.visibleRowRange = this._getVisbleRowRange(graph.data,
+                new Date(this.canvasRange.start), new Date(this.canvasRange.end),
+                type, graph.visibleRowRange, buffer);
+        }
+    }
+
+    this._redrawDataTooltip();
+};
+
+/**
+ * Move the data of a series into a ring buffer, used for streaming data.
+ * When the series contains more data points than the capacity of the buffer,
+ * only the latest data points are kept.
+ * @param {Object} graph   A series from this.data
+ * @private
+ */
+links.Graph.prototype._createBuffer = function (graph) {
+    var data = graph.data || [];
+    var buffer = new links.Graph.RingBuffer(this.streamCapacity);
+    for (var row = Math.max(data.length - buffer.capacity, 0), rows = data.length; row < rows; row++) {
+        buffer.push(data[row]);
+    }
+
+    graph.buffer = buffer;
+    graph.data = buffer.items;
+    graph.valueIndex = new links.Graph.MinMaxTree(buffer.items);
+    graph.visibleRowRange = undefined;
+    graph.autoScaleRowRange = undefined;
+    graph.rowRange = buffer.getRowRange();
+    graph.dataRange = buffer.getDataRange();
+};
+
 
 /** ------------------------------------------------------------------------ **/
 
@@ -3621,6 +4620,45 @@ links.Graph.preventDefault = function (event) {
     }
 };
 
+/**
+ * Get the name of the css transform property supported by the browser
+ * @return {String | null} property   For example 'transform' or
+ *                                    'WebkitTransform', or null when not
+ *                                    supported
+ */
+links.Graph.getTransformProperty = function () {
+    if (links.Graph.transformProperty === undefined) {
+        var style = document.createElement('div').style;
+        var properties = ['transform', 'WebkitTransform', 'MozTransform', 'msTransform'];
+        links.Graph.transformProperty = null;
+        for (var i = 0; i < properties.length; i++) {
+            if (style[properties[i]] !== undefined) {
+                links.Graph.transformProperty = properties[i];
+                break;
+            }
+        }
+    }
+    return links.Graph.transformProperty;
+};
+
+/**
+ * Execute a callback before the next repaint of the browser. Falls back to a
+ * timeout in browsers not supporting requestAnimationFrame.
+ * @param {function} callback
+ */
+links.Graph.requestAnimationFrame = function (callback) {
+    var requestAnimationFrame = window.requestAnimationFrame ||
+        window.webkitRequestAnimationFrame ||
+        window.mozRequestAnimationFrame ||
+        window.msRequestAnimationFrame;
+    if (requestAnimationFrame) {
+        requestAnimationFrame.call(window, callback);
+    }
+    else {
+        setTimeout(callback, 1000 / 60);
+    }
+};
+
 /**
  * Check if an event took place outside a specified parent element.
  * @param {Event} event A javascript (mouse) event object
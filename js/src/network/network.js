@@ -124,7 +124,36 @@ links.Network = function(container) {
     this.height = "100%";
     this.refreshRate = 50; // milliseconds
     this.stabilize = true; // stabilize before displaying the network
+    this.stabilizationProgressive = false; // stabilize in time slices instead of at once
+    this.stabilizationSlice = 20;          // duration of a time slice in ms
+    this.stabilizationDrawIntermediate = true; // draw the nodes between the time slices
     this.selectable = true;
+    this.physicsSolver = "pairwise"; // "pairwise", "grid", or "barneshut"
+    this.physics = new links.Network.Physics();
+    this.physicsWorker = false; // run the simulation in a Web Worker
+    this.worker = undefined;
+    this.physicsPending = 0;    // number of running simulations in the worker or in time slices
+    this.physicsGeneration = 0; // incremented to ignore the results of running worker simulations
+    this.readyPending = false;  // true when the ready event waits for the stabilization in the worker
+    this.stabilizing = false;   // true while the nodes are stabilized in the background and not drawn
+    this.stabilizationStats = undefined; // statistics of the last stabilization
+    this.stabilizationTimer = undefined; // timer of the next time slice of a progressive stabilization
+    this.relaxationDepth = 2;   // number of hops around added nodes which are relaxed
+    this.multilevel = false;    // find the initial layout via coarsened versions of the network
+    this.multilevelIterations = 50; // iterations per level of the multilevel layout
+    this.lodLabelScale = 0.3;   // below this scale, labels are not drawn
+    this.lodArrowScale = 0.3;   // below this scale, arrows and dashes are not drawn
+    this.lodDotSize = 3;        // nodes smaller than this size in pixels are drawn as dots
+    this.sprites = new links.Network.SpriteCache(4000000); // rendered nodes
+    this.hitIndex = new links.Network.HitIndex(); // spatial index on nodes and links
+    this.packageStream = new links.Network.PackageStream(10000); // packages added via streamPackages
+    this.groupAggregation = false;     // collapse groups into meta-nodes when zoomed out
+    this.groupAggregationScale = 0.2;  // below this scale, groups are collapsed
+    this.aggregation = new links.Network.GroupAggregation(); // the collapsed groups
+    this.createdNodes = undefined; // collects the created nodes during applyDelta
+    this.createdLinks = undefined; // collects the created links during applyDelta
+    this.randomSeed = undefined; // seed for the initial positions, Math.random when undefined
+    this.random = Math.random;   // random number generator for the initial positions
 
     // set constant values
     this.constants = {
@@ -173,12 +202,17 @@ links.Network = function(container) {
         },
         "minForce": 0.05,
         "minVelocity": 0.02,   // px/s
-        "maxIterations": 1000  // maximum number of iteration to stabilize
+        "minEnergy": 0.01,     // average kinetic energy per node considered as stable
+        "maxIterations": 1000, // maximum number of iteration to stabilize
+        "maxTime": 0           // maximum duration of stabilization in ms, 0 is no limit
     };
 
     this.nodes = [];     // array with Node objects
     this.links = [];     // array with Link objects
     this.packages = [];  // array with all Package packages
+    this.nodeIndex = {};     // map with the index of each node in this.nodes by id
+    this.linkIndex = {};     // map with the index of each link in this.links by id
+    this.packageIndex = {};  // map with the index of each package in this.packages by id
     this.images = new links.Network.Images();     // object with images
     this.groups = new links.Network.Groups();     // object with groups
 
@@ -237,7 +271,26 @@ links.Network.prototype.draw = function(nodes, links, packages, options) {
         if (options.width != undefined)           {this.width = options.width;}
         if (options.height != undefined)          {this.height = options.height;}
         if (options.stabilize != undefined)       {this.stabilize = options.stabilize;}
+        if (options.stabilizationProgressive != undefined)      {this.stabilizationProgressive = options.stabilizationProgressive;}
+        if (options.stabilizationSlice != undefined)            {this.stabilizationSlice = options.stabilizationSlice;}
+        if (options.stabilizationDrawIntermediate != undefined) {this.stabilizationDrawIntermediate = options.stabilizationDrawIntermediate;}
         if (options.selectable != undefined)      {this.selectable = options.selectable;}
+        if (options.physicsSolver != undefined)   {this.physicsSolver = options.physicsSolver.toLowerCase();}
+        if (options.physicsWorker != undefined)   {this.physicsWorker = options.physicsWorker;}
+        if (options.relaxationDepth != undefined) {this.relaxationDepth = options.relaxationDepth;}
+        if (options.multilevel != undefined)      {this.multilevel = options.multilevel;}
+        if (options.multilevelIterations != undefined) {this.multilevelIterations = options.multilevelIterations;}
+        if (options.lodLabelScale != undefined)   {this.lodLabelScale = options.lodLabelScale;}
+        if (options.lodArrowScale != undefined)   {this.lodArrowScale = options.lodArrowScale;}
+        if (options.lodDotSize != undefined)      {this.lodDotSize = options.lodDotSize;}
+        if (options.spriteCacheSize != undefined) {this.sprites.setMaxPixels(options.spriteCacheSize);}
+        if (options.streamPackagesMax != undefined) {this.packageStream.setCapacity(options.streamPackagesMax);}
+        if (options.groupAggregation != undefined)      {this.groupAggregation = options.groupAggregation;}
+        if (options.groupAggregationScale != undefined) {this.groupAggregationScale = options.groupAggregationScale;}
+        if (options.stabilizationTolerance != undefined)  {this.constants.minEnergy = options.stabilizationTolerance;}
+        if (options.stabilizationIterations != undefined) {this.constants.maxIterations = options.stabilizationIterations;}
+        if (options.stabilizationTimeout != undefined)    {this.constants.maxTime = options.stabilizationTimeout;}
+        if (options.randomSeed != undefined)      {this.randomSeed = options.randomSeed;}
         
         // TODO: work out these options and document them
         if (options.links) {
@@ -302,6 +355,9 @@ links.Network.prototype.draw = function(nodes, links, packages, options) {
                     this.groups.add(groupname, group);
                 }
             }
+
+            // the rendered nodes may have the old group style
+            this.sprites.clear();
         }
     }
 
@@ -317,9 +373,18 @@ links.Network.prototype.draw = function(nodes, links, packages, options) {
     this.setLinks(linksTable);
     this.setPackages(packagesTable);
 
+    this.readyPending = false;
     this._reposition(); // TODO: bad solution  
-    if (this.stabilize) {
-        this._doStabilize();
+    if (options && options.positions) {
+        this._applyPositions(options.positions);
+    }
+    // the multilevel layout and the stabilization share the timeout
+    var start = new Date().valueOf();
+    if (this.multilevel && this.hasMovingNodes) {
+        this._layoutMultilevel(start);
+    }
+    if (this.stabilize && this.hasMovingNodes) {
+        this._doStabilize(this._getRemainingTime(start));
     }
     this.start();
 
@@ -330,8 +395,14 @@ links.Network.prototype.draw = function(nodes, links, packages, options) {
     };
     this.images.setOnloadCallback(callback);
 
-    // fire the ready event
-    this.trigger('ready');
+    // fire the ready event. When the nodes are stabilized in the worker,
+    // the event is fired when the worker is finished
+    if (this.stabilizing && this._getWorker()) {
+        this.readyPending = true;
+    }
+    else {
+        this.trigger('ready');
+    }
 };
 
 /**
@@ -542,6 +613,7 @@ links.Network.prototype._onMouseMove = function (event) {
 
         if (!this.startClickedObj.yFixed)
             node.y = this._yToCanvas(mouseY - this.startFrameTop);
+        this.hitIndex.invalidate();
 
         // start animation if not yet running
         if (!this.hasMovingNodes) {
@@ -774,14 +846,21 @@ links.Network.prototype._checkShowPopup = function (x, y) {
                 break;
             }
         }
+
+        for (i = 0, len = this.packageStream.count; i < len && !this.popupNode; i++) {
+            p = this.packageStream.get(i);
+            if (p.getTitle() != undefined && p.isOverlappingWith(obj)) {
+                this.popupNode = p;
+            }
+        }
     }
 
     if (this.popupNode == undefined) {
         // search the nodes for overlap, select the top one in case of multiple nodes
-        var nodes = this.nodes;
+        var nodes = this._getHitIndex().getNodes(obj);
         for (i = nodes.length - 1; i >= 0; i--) {
-            var node = nodes[i];
-            if (node.getTitle() != undefined && node.isOverlappingWith(obj)) {
+            var node = this.nodes[nodes[i]];
+            if (node.getTitle() != undefined) {
                 this.popupNode = node;
                 break;
             }
@@ -790,10 +869,10 @@ links.Network.prototype._checkShowPopup = function (x, y) {
 
     if (this.popupNode == undefined) {
         // search the links for overlap
-        var allLinks = this.links;
-        for (i = 0, len = allLinks.length; i < len; i++) {
-            var link = allLinks[i];
-            if (link.getTitle() != undefined && link.isOverlappingWith(obj)) {
+        var overlappingLinks = this._getHitIndex().getLinks(obj);
+        for (i = 0, len = overlappingLinks.length; i < len; i++) {
+            var link = this.links[overlappingLinks[i]];
+            if (link.getTitle() != undefined) {
                 this.popupNode = link;
                 break;
             }
@@ -838,10 +917,17 @@ links.Network.prototype._checkHidePopup = function (x, y) {
     };
 
     if (!this.popupNode || !this.popupNode.isOverlappingWith(obj) ) {
-        this.popupNode = undefined;
-        if (this.popup) {
-            this.popup.hide();
-        }
+        this._hidePopup();
+    }
+};
+
+/**
+ * Hide the popup, and forget the element of which it shows the title
+ */
+links.Network.prototype._hidePopup = function () {
+    this.popupNode = undefined;
+    if (this.popup) {
+        this.popup.hide();
     }
 };
 
@@ -1020,18 +1106,33 @@ links.Network.prototype._selectNodes = function(selection, append) {
 links.Network.prototype._getNodesOverlappingWith = function (obj) {
     var overlappingNodes = [];
 
-    for (var i = 0; i < this.nodes.length; i++) {
-        if (this.nodes[i].isOverlappingWith(obj)) {
-            var sel = {"row": i};
-            overlappingNodes.push(sel);
-        }
+    var indexes = this._getHitIndex().getNodes(obj);
+    for (var i = 0; i < indexes.length; i++) {
+        var sel = {"row": indexes[i]};
+        overlappingNodes.push(sel);
     }
 
     return overlappingNodes;
 };
 
+/**
+ * Get the spatial index on the nodes and links, which is rebuilt when the
+ * network has been redrawn since the last search
+ * @return {links.Network.HitIndex} hitIndex
+ * @private
+ */
+links.Network.prototype._getHitIndex = function () {
+    if (!this.hitIndex.isValid()) {
+        this.hitIndex.build(this.nodes, this.links, this.constants.links.length);
+    }
+    return this.hitIndex;
+};
+
 /**
  * retrieve the currently selected nodes
+ * The row of a node is its index in the network. It equals the row in the
+ * nodes table until nodes are deleted: a node deleted via addNodes or
+ * applyDelta is replaced by the last node, which takes over its row.
  * @return {Object[]} an array with zero or more objects. Each object
  *                              contains the parameter row
  */
@@ -1048,6 +1149,7 @@ links.Network.prototype.getSelection = function() {
 
 /**
  * select zero or more nodes
+ * The rows are the indexes of the nodes in the network, see getSelection.
  * @param {object[]} selection  an array with zero or more objects. Each object
  *                              contains the parameter row
  */
@@ -1090,70 +1192,42 @@ links.Network.prototype.setSelection = function(selection) {
  *                                    for each node
  */
 links.Network.prototype._getConnectionCount = function(level) {
-    var conn = this.links;
     if (level == undefined) {
         level = 1;
     }
 
-    // get the nodes connected to given nodes
-    function getConnectedNodes(nodes) {
-        var connectedNodes = [];
-
-        for (var j = 0, jMax = nodes.length; j < jMax; j++) {
-            var node = nodes[j];
-
-            // find all nodes connected to this node
-            for (var i = 0, iMax = conn.length; i < iMax; i++) {
-                var other = null;
-
-                // check if connected
-                if (conn[i].from == node)
-                    other = conn[i].to;
-                else if (conn[i].to == node)
-                    other = conn[i].from;
-
-                // check if the other node is not already in the list with nodes
-                var k, kMax;
-                if (other) {
-                    for (k = 0, kMax = nodes.length; k < kMax; k++) {
-                        if (nodes[k] == other) {
-                            other = null;
-                            break;
-                        }
-                    }
-                }
-                if (other) {
-                    for (k = 0, kMax = connectedNodes.length; k < kMax; k++) {
-                        if (connectedNodes[k] == other) {
-                            other = null;
-                            break;
-                        }
-                    }
-                }
-
-                if (other)
-                    connectedNodes.push(other);
-            }
-        }
-
-        return connectedNodes;
-    }
-
-    var connections = [];
-    var level0 = [];
+    // walk through the links connected to each node (breadth first), and
+    // mark the visited nodes with the index of the start node, so the marks
+    // do not need to be cleared for each node
     var nodes = this.nodes;
+    var hubs = [];
     var i, iMax;
     for (i = 0, iMax = nodes.length; i < iMax; i++) {
-        var c = [nodes[i]];
-        for (var l = 0; l < level; l++) {
-            c = c.concat(getConnectedNodes(c));
-        }
-        connections.push(c);
+        nodes[i].connectionMark = undefined;
     }
+    for (i = 0, iMax = nodes.length; i < iMax; i++) {
+        var count = 1;
+        var current = [nodes[i]];
+        nodes[i].connectionMark = i;
+
+        for (var l = 0; l < level && current.length > 0; l++) {
+            var next = [];
+            for (var j = 0, jMax = current.length; j < jMax; j++) {
+                var node = current[j];
+                for (var k = 0, kMax = node.links.length; k < kMax; k++) {
+                    var link = node.links[k];
+                    var other = (link.from == node) ? link.to : link.from;
+                    if (other && other.connectionMark !== i) {
+                        other.connectionMark = i;
+                        next.push(other);
+                        count++;
+                    }
+                }
+            }
+            current = next;
+        }
 
-    var hubs = [];
-    for (i = 0, len = connections.length; i < len; i++) {
-        hubs.push(connections[i].length);
+        hubs.push(count);
     }
 
     return hubs;
@@ -1217,26 +1291,40 @@ links.Network.tableToArray = function(table) {
 
 
 /**
- * Append nodes
- * Nodes with a duplicate id will be replaced
- * @param {google.visualization.DataTable | Array} nodesTable  The data containing the nodes.
+ * Convert a Google DataTable or a Javascript Array to a Javascript Array
+ * @param {google.visualization.DataTable | Array} table
+ * @return {Array | undefined} array  Undefined when table is no DataTable
+ *                                    or Array
  */
-links.Network.prototype.addNodes = function(nodesTable) {
-    var table;
+links.Network.toArray = function(table) {
     if (google && google.visualization && google.visualization.DataTable &&
-        nodesTable instanceof google.visualization.DataTable) {
-        // Google DataTable. 
+        table instanceof google.visualization.DataTable) {
+        // Google DataTable.
         // Convert to a Javascript Array
-        table = links.Network.tableToArray(nodesTable);
+        return links.Network.tableToArray(table);
     }
-    else if (links.Network.isArray(nodesTable)){
+    else if (links.Network.isArray(table)){
         // Javascript Array
-        table = nodesTable;
-    }
-    else {
-        return;
+        return table;
     }
+    return undefined;
+};
+
+/**
+ * Append nodes
+ * Nodes with a duplicate id will be replaced
+ * @param {google.visualization.DataTable | Array} nodesTable  The data containing the nodes.
+ */
+links.Network.prototype.addNodes = function(nodesTable) {
+    this.applyDelta({"nodes": nodesTable});
+};
 
+/**
+ * Create or update nodes from an array with node properties
+ * @param {Array} table        Array with the properties of the nodes
+ * @return {boolean} hasValues True when one of the nodes has a value
+ */
+links.Network.prototype._createNodes = function(table) {
     var hasValues = false;
     var rowCount = table.length;
     for (var i = 0; i < rowCount; i++) {
@@ -1252,12 +1340,7 @@ links.Network.prototype.addNodes = function(nodesTable) {
         this._createNode(properties);
     }
 
-    // calculate scaling function when value is provided
-    if (hasValues) {
-        this._updateValueRange(this.nodes);
-    }
-
-    this.start();
+    return hasValues;
 };
 
 /**
@@ -1284,7 +1367,10 @@ links.Network.prototype.setNodes = function(nodesTable) {
     this.hasMovingNodes = false;
     this.nodesTable = table;
     this.nodes = [];
+    this.nodeIndex = {};
     this.selection = [];
+    this.aggregation.invalidate();
+    this.hitIndex.invalidate();
 
     var hasValues = false;
     var rowCount = table.length;
@@ -1303,6 +1389,8 @@ links.Network.prototype.setNodes = function(nodesTable) {
         this._createNode(properties);
     }
 
+    this.nodesTimeline = new links.Network.Timeline(table);
+
     // calculate scaling function when value is provided
     if (hasValues) {
         this._updateValueRange(this.nodes);
@@ -1320,48 +1408,85 @@ links.Network.prototype._filterNodes = function(timestamp) {
         return;
     }
 
+    // only the nodes with rows crossed since the previous timestamp change
+    var timeline = this.nodesTimeline;
+    var rows = timeline.move(timestamp);
+    var table = this.nodesTable;
+    var ids = [];
+    var done = {};
+    var i, iMax, id, index;
+    for (i = 0, iMax = rows.length; i < iMax; i++) {
+        id = table[rows[i]].id;
+        if (!Object.prototype.hasOwnProperty.call(done, id)) {
+            done[id] = true;
+            ids.push(id);
+        }
+    }
+
     // remove existing nodes with a too new timestamp
+    var removedNodes = [];
     if (timestamp !== undefined) {
-        var ns = this.nodes;
-        var n = 0;
-        while (n < ns.length) {
-            var t = ns[n].timestamp;
-            if (t !== undefined && t > timestamp) {
-                // remove this node
-                ns.splice(n, 1);
-            }
-            else {
-                n++;
+        for (i = 0, iMax = ids.length; i < iMax; i++) {
+            index = this._findNode(ids[i]);
+            if (index !== undefined) {
+                var t = this.nodes[index].timestamp;
+                if (t !== undefined && t > timestamp) {
+                    this.nodes[index].removed = true;
+                    removedNodes.push(this.nodes[index]);
+                }
             }
         }
+        if (removedNodes.length) {
+            this._removeMarked(this.nodes, this.nodeIndex);
+        }
     }
 
-    // add all nodes with an old enough timestamp
-    var table = this.nodesTable;
-    var rowCount = table.length;
-    for (var i = 0; i < rowCount; i++) {
-        // copy all properties
-        var properties = table[i];
+    // create or update these nodes from all their rows with an old enough
+    // timestamp
+    for (i = 0, iMax = ids.length; i < iMax; i++) {
+        var group = timeline.groups[ids[i]];
+        for (var g = 0, gMax = group.length; g < gMax; g++) {
+            var properties = table[group[g]];
+            if (links.Network.Timeline.isVisible(properties, timestamp)) {
+                this._createNode(properties);
+            }
+        }
+    }
 
-        if (properties.id === undefined) {
-            throw "Column 'id' missing in table with nodes (row " + i + ")";
+    // the links of removed nodes which are created again from an older
+    // row are not re-applied, let them refer to the new node
+    for (i = 0, iMax = removedNodes.length; i < iMax; i++) {
+        index = this._findNode(removedNodes[i].id);
+        if (index !== undefined) {
+            this._updateNodeReferences(removedNodes[i], this.nodes[index]);
         }
+    }
 
-        // check what the timestamp is
-        var ts = properties.timestamp ? properties.timestamp : undefined;
+    this.start();
+};
 
-        var visible = true;
-        if (ts !== undefined && timestamp !== undefined && ts > timestamp) {
-            visible = false;
-        }
+/**
+ * Remove all items marked as removed from an array, and update the index
+ * of the array
+ * @param {Array} items      Array with items, for example this.nodes
+ * @param {Object} index     Map with the index of each item by id
+ * @private
+ */
+links.Network.prototype._removeMarked = function (items, index) {
+    this.hitIndex.invalidate();
 
-        if (visible) {
-            // create or update the node
-            this._createNode(properties);
+    var count = 0;
+    for (var i = 0, iMax = items.length; i < iMax; i++) {
+        if (items[i].removed) {
+            items[i].removed = undefined;
+        }
+        else {
+            items[count] = items[i];
+            count++;
         }
     }
-
-    this.start();
+    items.length = count;
+    this._updateIndex(items, index);
 };
 
 /**
@@ -1392,35 +1517,16 @@ links.Network.prototype._createNode = function(properties) {
                 this._unselectNodes([{'row': index}], false);
             }
 
-            /* TODO: implement this? -> will give performance issues, searching all links and node...
-             // update links linking to this node
-             var linksTable = this.links;
-             for (var i = 0, iMax = linksTable.length; i < iMax; i++) {
-             var link = linksTable[i];
-             if (link.from == oldNode) {
-             link.from = newNode;
-             }
-             if (link.to == oldNode) {
-             link.to = newNode;
-             }
-             }
-
-             // update packages linking to this node
-             var packagesTable = this.packages;
-             for (var i = 0, iMax = packagesTable.length; i < iMax; i++) {
-             var package = packagesTable[i];
-             if (package.from == oldNode) {
-             package.from = newNode;
-             }
-             if (package.to == oldNode) {
-             package.to = newNode;
-             }
-             }
-             */
+            // let the links and packages refer to the new node
+            this._updateNodeReferences(oldNode, newNode);
         }
         else {
             // add new node
             this.nodes.push(newNode);
+            this._addToIndex(this.nodes, this.nodeIndex);
+        }
+        if (this.createdNodes) {
+            this.createdNodes.push(newNode);
         }
 
         if (!newNode.isFixed()) {
@@ -1445,6 +1551,10 @@ links.Network.prototype._createNode = function(properties) {
             // create node
             newNode = new links.Network.Node(properties, this.images, this.groups, this.constants);
             this.nodes.push(newNode);
+            this._addToIndex(this.nodes, this.nodeIndex);
+            if (this.createdNodes) {
+                this.createdNodes.push(newNode);
+            }
 
             if (!newNode.isFixed()) {
                 // note: no not use node.isMoving() here, as that gives the current
@@ -1467,7 +1577,16 @@ links.Network.prototype._createNode = function(properties) {
             if (oldNode.selected) {
                 this._unselectNodes([{'row': index}], false);
             }
-            this.nodes.splice(index, 1);
+            var lastRow = this.nodes.length - 1;
+            this._removeFromIndex(this.nodes, this.nodeIndex, index);
+            if (index < lastRow && this.nodes[index].selected) {
+                // the last node is moved into the freed row
+                for (var s = 0, sMax = this.selection.length; s < sMax; s++) {
+                    if (this.selection[s].row == lastRow) {
+                        this.selection[s].row = index;
+                    }
+                }
+            }
         }
         else {
             throw "Node with id " + id + " not found";
@@ -1485,14 +1604,7 @@ links.Network.prototype._createNode = function(properties) {
  *                          undefined when not found. *
  */
 links.Network.prototype._findNode = function (id) {
-    var nodes = this.nodes;
-    for (var n = 0, len = nodes.length; n < len; n++) {
-        if (nodes[n].id === id) {
-            return n;
-        }
-    }
-
-    return undefined;
+    return this._findInIndex(this.nodes, this.nodeIndex, id);
 };
 
 /**
@@ -1527,8 +1639,12 @@ links.Network.prototype.setLinks = function(linksTable) {
     }
 
     this.linksTable = table;
+    this.linksTimeline = new links.Network.Timeline(table);
     this.links = [];
+    this.linkIndex = {};
     this.hasMovingLinks = false;
+    this.aggregation.invalidate();
+    this.hitIndex.invalidate();
 
     var hasValues = false;
     var rowCount = table.length;
@@ -1549,6 +1665,10 @@ links.Network.prototype.setLinks = function(linksTable) {
         }
 
         this._createLink(properties);
+        if (properties.id === undefined) {
+            // remember the link created from this row, as it cannot be found by id
+            this.linksTimeline.items[i] = this.links[this.links.length - 1];
+        }
     }
 
     // calculate scaling function when value is provided
@@ -1564,21 +1684,15 @@ links.Network.prototype.setLinks = function(linksTable) {
  * @param {google.visualization.DataTable | Array}      linksTable    The data containing the links.
  */
 links.Network.prototype.addLinks = function(linksTable) {
-    var table;
-    if (google && google.visualization && google.visualization.DataTable &&
-        linksTable instanceof google.visualization.DataTable) {
-        // Google DataTable. 
-        // Convert to a Javascript Array
-        table = links.Network.tableToArray(linksTable);
-    }
-    else if (links.Network.isArray(linksTable)){
-        // Javascript Array
-        table = linksTable;
-    }
-    else {
-        return;
-    }
+    this.applyDelta({"links": linksTable});
+};
 
+/**
+ * Create or update links from an array with link properties
+ * @param {Array} table        Array with the properties of the links
+ * @return {boolean} hasValues True when one of the links has a value
+ */
+links.Network.prototype._createLinks = function(table) {
     var hasValues = false;
     var rowCount = table.length;
     for (var i = 0; i < rowCount; i++) {
@@ -1598,12 +1712,7 @@ links.Network.prototype.addLinks = function(linksTable) {
         this._createLink(properties);
     }
 
-    // calculate scaling function when value is provided
-    if (hasValues) {
-        this._updateValueRange(this.links);
-    }
-
-    this.start();
+    return hasValues;
 };
 
 
@@ -1618,46 +1727,72 @@ links.Network.prototype._filterLinks = function(timestamp) {
         return;
     }
 
-    // remove existing packages with a too new timestamp
+    // only the links with rows crossed since the previous timestamp change
+    var timeline = this.linksTimeline;
+    var rows = timeline.move(timestamp);
+    var table = this.linksTable;
+    var ids = [];
+    var done = {};
+    var i, iMax, id, index, link, properties;
+    for (i = 0, iMax = rows.length; i < iMax; i++) {
+        id = table[rows[i]].id;
+        if (id !== undefined && !Object.prototype.hasOwnProperty.call(done, id)) {
+            done[id] = true;
+            ids.push(id);
+        }
+    }
+
+    // remove existing links with a too new timestamp
+    var removed = false;
     if (timestamp !== undefined) {
-        var ls = this.links;
-        var l = 0;
-        while (l < ls.length) {
-            var t = ls[l].timestamp;
-            if (t !== undefined && t > timestamp) {
-                // remove this link
-                ls.splice(l, 1);
-            }
-            else {
-                l++;
+        for (i = 0, iMax = ids.length; i < iMax; i++) {
+            index = this._findLink(ids[i]);
+            if (index !== undefined) {
+                link = this.links[index];
+                if (link.timestamp !== undefined && link.timestamp > timestamp) {
+                    link.removed = true;
+                    removed = true;
+                }
             }
         }
     }
-
-    // add all links with an old enough timestamp
-    var table = this.linksTable;
-    var rowCount = table.length;
-    for (var i = 0; i < rowCount; i++) {
-        var properties = table[i];
-
-        if (properties.from === undefined) {
-            throw "Column 'from' missing in table with links (row " + i + ")";
+    for (i = 0, iMax = rows.length; i < iMax; i++) {
+        // links without id are created and removed per row
+        link = timeline.items[rows[i]];
+        if (link && !links.Network.Timeline.isVisible(table[rows[i]], timestamp)) {
+            link.removed = true;
+            removed = true;
+            timeline.items[rows[i]] = undefined;
         }
-        if (properties.to === undefined) {
-            throw "Column 'to' missing in table with links (row " + i + ")";
+    }
+    if (removed) {
+        for (i = 0, iMax = this.links.length; i < iMax; i++) {
+            link = this.links[i];
+            if (link.removed) {
+                link.from.detachLink(link);
+                link.to.detachLink(link);
+            }
         }
+        this._removeMarked(this.links, this.linkIndex);
+    }
 
-        // check what the timestamp is
-        var ts = properties.timestamp ? properties.timestamp : undefined;
-
-        var visible = true;
-        if (ts !== undefined && timestamp !== undefined && ts > timestamp) {
-            visible = false;
+    // create or update the links from all their rows with an old enough
+    // timestamp
+    for (i = 0, iMax = ids.length; i < iMax; i++) {
+        var group = timeline.groups[ids[i]];
+        for (var g = 0, gMax = group.length; g < gMax; g++) {
+            properties = table[group[g]];
+            if (links.Network.Timeline.isVisible(properties, timestamp)) {
+                this._createLink(properties);
+            }
         }
-
-        if (visible) {
-            // create or update the link
+    }
+    for (i = 0, iMax = rows.length; i < iMax; i++) {
+        properties = table[rows[i]];
+        if (properties.id === undefined && !timeline.items[rows[i]] &&
+                links.Network.Timeline.isVisible(properties, timestamp)) {
             this._createLink(properties);
+            timeline.items[rows[i]] = this.links[this.links.length - 1];
         }
     }
 
@@ -1692,9 +1827,13 @@ links.Network.prototype._createLink = function(properties) {
         else {
             // add new link
             this.links.push(link);
+            this._addToIndex(this.links, this.linkIndex);
         }
         link.from.attachLink(link);
         link.to.attachLink(link);
+        if (this.createdLinks) {
+            this.createdLinks.push(link);
+        }
 
         if (link.isMoving()) {
             this.hasMovingLinks = true;
@@ -1724,6 +1863,10 @@ links.Network.prototype._createLink = function(properties) {
             link.from.attachLink(link);
             link.to.attachLink(link);
             this.links.push(link);
+            this._addToIndex(this.links, this.linkIndex);
+            if (this.createdLinks) {
+                this.createdLinks.push(link);
+            }
             if (link.isMoving()) {
                 this.hasMovingLinks = true;
             }
@@ -1739,9 +1882,9 @@ links.Network.prototype._createLink = function(properties) {
         index = this._findLink(id);
         if (index !== undefined) {
             oldLink = this.links[index];
-            link.from.detachLink(oldLink);
-            link.to.detachLink(oldLink);
-            this.links.splice(index, 1);
+            oldLink.from.detachLink(oldLink);
+            oldLink.to.detachLink(oldLink);
+            this._removeFromIndex(this.links, this.linkIndex, index);
         }
         else {
             throw "Link with id " + id + " not found";
@@ -1753,22 +1896,51 @@ links.Network.prototype._createLink = function(properties) {
 };
 
 /**
- * Update the link to oldNode in all links and packages.
- * @param {Node} oldNode
- * @param {Node} newNode
+ * Update the link to oldNode in all links and packages, when oldNode is
+ * replaced by newNode. The links are found via the links attached to
+ * oldNode, and are attached to newNode.
+ * @param {links.Network.Node} oldNode
+ * @param {links.Network.Node} newNode
+ * @private
  */
-// TODO: start utilizing this method _updateNodeReferences
 links.Network.prototype._updateNodeReferences = function(oldNode, newNode) {
-    var arrays = [this.links, this.packages];
-    for (var a = 0, aMax = arrays.length; a < aMax; a++) {
-        var array = arrays[a];
-        for (var i = 0, iMax = array.length; i < iMax; i++) {
-            if (array.from === oldNode) {
-                array.from = newNode;
-            }
-            if (array.to === oldNode) {
-                array.to = newNode;
-            }
+    var i, iMax;
+
+    // a link from a node to itself is attached twice, and attached twice
+    // to the new node too
+    var attached = oldNode.links;
+    oldNode.links = [];
+    for (i = 0, iMax = attached.length; i < iMax; i++) {
+        var link = attached[i];
+        if (link.from === oldNode) {
+            link.from = newNode;
+        }
+        if (link.to === oldNode) {
+            link.to = newNode;
+        }
+        newNode.attachLink(link);
+    }
+    oldNode._updateMass();
+
+    var packages = this.packages;
+    for (i = 0, iMax = packages.length; i < iMax; i++) {
+        var p = packages[i];
+        if (p.from === oldNode) {
+            p.from = newNode;
+        }
+        if (p.to === oldNode) {
+            p.to = newNode;
+        }
+    }
+
+    var stream = this.packageStream;
+    for (i = 0, iMax = stream.count; i < iMax; i++) {
+        p = stream.get(i);
+        if (p.from === oldNode) {
+            p.from = newNode;
+        }
+        if (p.to === oldNode) {
+            p.to = newNode;
         }
     }
 };
@@ -1780,14 +1952,7 @@ links.Network.prototype._updateNodeReferences = function(oldNode, newNode) {
  *                          undefined when not found. *
  */
 links.Network.prototype._findLink = function (id) {
-    var links = this.links;
-    for (var n = 0, len = links.length; n < len; n++) {
-        if (links[n].id === id) {
-            return n;
-        }
-    }
-
-    return undefined;
+    return this._findInIndex(this.links, this.linkIndex, id);
 };
 
 /**
@@ -1806,21 +1971,14 @@ links.Network.prototype._findLinkByRow = function (row) {
  * @param {google.visualization.DataTable | Array}   packagesTable    The data containing the packages.
  */
 links.Network.prototype.addPackages = function(packagesTable) {
-    var table;
-    if (google && google.visualization && google.visualization.DataTable &&
-        packagesTable instanceof google.visualization.DataTable) {
-        // Google DataTable. 
-        // Convert to a Javascript Array
-        table = links.Network.tableToArray(packagesTable);
-    }
-    else if (links.Network.isArray(packagesTable)){
-        // Javascript Array
-        table = packagesTable;
-    }
-    else {
-        return;
-    }
+    this.applyDelta({"packages": packagesTable});
+};
 
+/**
+ * Create, update, or delete packages from an array with package properties
+ * @param {Array} table        Array with the properties of the packages
+ */
+links.Network.prototype._createPackages = function(table) {
     var rowCount = table.length;
     for (var i = 0; i < rowCount; i++) {
         var properties = table[i];
@@ -1834,55 +1992,213 @@ links.Network.prototype.addPackages = function(packagesTable) {
 
         this._createPackage(properties);
     }
-
-    // calculate scaling function when value is provided
-    this._updateValueRange(this.packages);
-
-    this.start();
 };
 
 /**
- * Set a new packages table
- * Packages with a duplicate id will be replaced
+ * Apply a batch of changes to the nodes, links, and packages at once.
+ * Each row can contain an action "create", "update", or "delete", like the
+ * rows of addNodes, addLinks, and addPackages. The nodes are applied first,
+ * then the links, and then the packages. The value range of each kind of
+ * item is updated once, and the simulation is restarted once, instead of
+ * after each of the tables.
  * Note that Object DataTable is defined in google.visualization.DataTable
- * @param {google.visualization.DataTable | Array}   packagesTable    The data containing the packages.
+ * @param {Object} delta  An object with optional fields nodes, links, and
+ *                        packages, each a google.visualization.DataTable
+ *                        or an Array.
  */
-links.Network.prototype.setPackages = function(packagesTable) {
-    var table;
-    if (google && google.visualization && google.visualization.DataTable &&
-        packagesTable instanceof google.visualization.DataTable) {
-        // Google DataTable. 
-        // Convert to a Javascript Array
-        table = links.Network.tableToArray(packagesTable);
+links.Network.prototype.applyDelta = function(delta) {
+    var nodesTable = links.Network.toArray(delta.nodes);
+    var linksTable = links.Network.toArray(delta.links);
+    var packagesTable = links.Network.toArray(delta.packages);
+
+    // empty tables are ignored, they must not restart the simulation
+    if (nodesTable && nodesTable.length == 0) {
+        nodesTable = undefined;
     }
-    else if (links.Network.isArray(packagesTable)){
-        // Javascript Array
-        table = packagesTable;
+    if (linksTable && linksTable.length == 0) {
+        linksTable = undefined;
     }
-    else {
+    if (packagesTable && packagesTable.length == 0) {
+        packagesTable = undefined;
+    }
+    if (!nodesTable && !linksTable && !packagesTable) {
         return;
     }
 
-    this.packagesTable = table;
-    this.packages = [];
-
-    var rowCount = table.length;
-    for (var i = 0; i < rowCount; i++) {
-        var properties = table[i];
+    var hasMovingNodes = this.hasMovingNodes;
+    var createdNodes = [];
+    var createdLinks = [];
+    if (nodesTable || linksTable) {
+        this.aggregation.invalidate();
+        this.hitIndex.invalidate();
+    }
 
-        if (properties.from === undefined) {
-            throw "Column 'from' missing in table with packages (row " + i + ")";
+    // collect the created nodes and links, also when a row is invalid
+    var nodesHaveValues = false;
+    var linksHaveValues = false;
+    this.createdNodes = createdNodes;
+    this.createdLinks = createdLinks;
+    try {
+        if (nodesTable) {
+            nodesHaveValues = this._createNodes(nodesTable);
         }
-        if (properties.to === undefined) {
-            throw "Column 'to' missing in table with packages (row " + i + ")";
+        if (linksTable) {
+            linksHaveValues = this._createLinks(linksTable);
         }
-        if (properties.timestamp) {
+    }
+    finally {
+        this.createdNodes = undefined;
+        this.createdLinks = undefined;
+    }
+
+    // calculate scaling function when value is provided
+    if (nodesHaveValues) {
+        this._updateValueRange(this.nodes);
+    }
+    if (linksHaveValues) {
+        this._updateValueRange(this.links);
+    }
+
+    if (packagesTable) {
+        this._createPackages(packagesTable);
+        this._updateValueRange(this.packages);
+    }
+
+    if (this.relaxationDepth >= 0 && this.nodes.length > 0) {
+        // place the new nodes, and only move the nodes around them and
+        // around the new links
+        var nodes = [];
+        for (var i = 0, iMax = createdNodes.length; i < iMax; i++) {
+            var node = createdNodes[i];
+            if (!node.isFixed()) {
+                node.seedPending = true;
+            }
+            nodes.push(node);
+        }
+        if (!hasMovingNodes) {
+            for (i = 0, iMax = createdLinks.length; i < iMax; i++) {
+                var link = createdLinks[i];
+                if (link.from) {
+                    nodes.push(link.from);
+                }
+                if (link.to) {
+                    nodes.push(link.to);
+                }
+            }
+        }
+        if (nodes.length > 0) {
+            this._relaxLocal(nodes);
+            this.hasMovingNodes = hasMovingNodes;
+        }
+    }
+
+    this.start();
+};
+
+/**
+ * Add a stream of packages to the network, for example live traffic. The
+ * packages move once from their start to their end node, and are removed
+ * when finished. Unlike addPackages, the packages cannot be updated or
+ * deleted, and package objects are reused, so a high rate of packages does
+ * not allocate memory. When the number of moving packages exceeds the option
+ * streamPackagesMax, the oldest packages are dropped.
+ * Note that Object DataTable is defined in google.visualization.DataTable
+ * @param {google.visualization.DataTable | Array}   packagesTable    The data containing the packages.
+ */
+links.Network.prototype.streamPackages = function(packagesTable) {
+    var table = links.Network.toArray(packagesTable);
+    if (!table) {
+        return;
+    }
+
+    var rowCount = table.length;
+    for (var i = 0; i < rowCount; i++) {
+        var properties = table[i];
+
+        if (properties.from === undefined) {
+            throw "Column 'from' missing in table with packages (row " + i + ")";
+        }
+        if (properties.to === undefined) {
+            throw "Column 'to' missing in table with packages (row " + i + ")";
+        }
+
+        // the package object of a finished or dropped package is reused,
+        // the popup must not show the new package with the old title
+        var p = this.packageStream.push(properties, this, this.images, this.constants);
+        if (p == this.popupNode) {
+            this._hidePopup();
+        }
+    }
+
+    if (this.packageStream.count > 0) {
+        this.hasMovingPackages = true;
+    }
+
+    this.start();
+};
+
+/**
+ * Set a new packages table
+ * Packages with a duplicate id will be replaced
+ * Note that Object DataTable is defined in google.visualization.DataTable
+ * @param {google.visualization.DataTable | Array}   packagesTable    The data containing the packages.
+ */
+links.Network.prototype.setPackages = function(packagesTable) {
+    var table;
+    if (google && google.visualization && google.visualization.DataTable &&
+        packagesTable instanceof google.visualization.DataTable) {
+        // Google DataTable. 
+        // Convert to a Javascript Array
+        table = links.Network.tableToArray(packagesTable);
+    }
+    else if (links.Network.isArray(packagesTable)){
+        // Javascript Array
+        table = packagesTable;
+    }
+    else {
+        return;
+    }
+
+    this.packagesTable = table;
+    this.packages = [];
+    this.packageIndex = {};
+
+    var rowCount = table.length;
+    for (var i = 0; i < rowCount; i++) {
+        var properties = table[i];
+
+        if (properties.from === undefined) {
+            throw "Column 'from' missing in table with packages (row " + i + ")";
+        }
+        if (properties.to === undefined) {
+            throw "Column 'to' missing in table with packages (row " + i + ")";
+        }
+        if (properties.timestamp) {
             this.hasTimestamps = this.hasTimestamps || properties.timestamp;
         }
 
         this._createPackage(properties);
     }
 
+    // index the packages without progress by timestamp. Their progress is
+    // calculated from the timestamp when filtering the packages
+    var timeline = new links.Network.Timeline(table, function (properties) {
+        return (properties.progress == undefined);
+    });
+    timeline.duration = 0; // maximum duration in seconds
+    timeline.always = [];  // rows which are not filtered by duration
+    for (i = 0; i < rowCount; i++) {
+        properties = table[i];
+        if (properties.progress == undefined && properties.timestamp != undefined) {
+            var duration = properties.duration || this.constants.packages.duration; // seconds
+            timeline.duration = Math.max(timeline.duration, duration);
+        }
+        else {
+            timeline.always.push(i);
+        }
+    }
+    this.packagesTimeline = timeline;
+
     // calculate scaling function when value is provided
     this._updateValueRange(this.packages);
 
@@ -1904,69 +2220,62 @@ links.Network.prototype._filterPackages = function(timestamp) {
 
     // remove all current packages
     this.packages = [];
+    this.packageIndex = {};
 
-    /* TODO: cleanup
-     // remove existing packages with a too new timestamp
-     if (timestamp !== undefined) {
-     var packages = this.packages;
-     var p = 0;
-     while (p < packages.length) {
-     var package = packages[p];
-     var t = package.timestamp;
-
-     if (t !== undefined &&  t > timestamp ) {
-     // remove this package
-     packages.splice(p, 1);
-     }
-     else {
-     p++;
-     }
-     }
-     }
-     */
-
-    // add all packages with an old enough timestamp
     var table = this.packagesTable;
-    var rowCount = table.length;
-    for (var i = 0; i < rowCount; i++) {
-        var properties = table[i];
+    var timeline = this.packagesTimeline;
+    var i, iMax, properties;
+    if (timestamp === undefined) {
+        // show all packages
+        for (i = 0, iMax = table.length; i < iMax; i++) {
+            this._createPackage(table[i]);
+        }
+        this.start();
+        return;
+    }
+
+    // find the packages which can be moving at the given timestamp: the
+    // packages with a timestamp within the maximum duration before the
+    // timestamp, and the packages with a progress
+    var time = timestamp.valueOf();
+    var start = timeline.count(time - timeline.duration * 1000),
+        end = timeline.count(time);
+    var rows = timeline.rows.slice(start, end).concat(timeline.always);
+    rows.sort(function (a, b) {
+        return a - b;
+    });
+
+    for (i = 0, iMax = rows.length; i < iMax; i++) {
+        properties = table[rows[i]];
 
-        if (properties.from === undefined) {
-            throw "Column 'from' missing in table with packages (row " + i + ")";
-        }
-        if (properties.to === undefined) {
-            throw "Column 'to' missing in table with packages (row " + i + ")";
-        }
         // check what the timestamp is
         var pTimestamp = properties.timestamp ? properties.timestamp : undefined;
 
         var visible = true;
-        if (pTimestamp !== undefined && timestamp !== undefined && pTimestamp > timestamp) {
+        if (pTimestamp !== undefined && pTimestamp.valueOf() > time) {
             visible = false;
         }
 
-        if (visible === true) {
-            if (properties.progress == undefined) {
-                // when no progress is provided, we need to add our own progress
-                var duration = properties.duration || this.constants.packages.duration; // seconds
-
-                var diff = (timestamp.getTime() - pTimestamp.getTime()) / 1000; // seconds
-                if (diff < duration) {
-                    // copy the properties, and fill in the current progress based on the
-                    // timestamp and the duration
-                    var original = properties;
-                    properties = {};
-                    for (var j in original) {
-                        if (original.hasOwnProperty(j)) {
-                            properties[j] = original[j];
-                        }
-                    }
+        if (visible === true && properties.progress == undefined && pTimestamp !== undefined) {
+            // when no progress is provided, we need to add our own progress
+            var duration = properties.duration || this.constants.packages.duration; // seconds
 
-                    properties.progress = diff / duration;  // scale 0-1
-                }
-                else {
-                    visible = false;
+            var diff = (time - pTimestamp.valueOf()) / 1000; // seconds
+            if (diff < duration) {
+                // copy the properties, and fill in the current progress based on the
+                // timestamp and the duration
+                var original = properties;
+                properties = {};
+                for (var j in original) {
+                    if (original.hasOwnProperty(j)) {
+                        properties[j] = original[j];
+                    }
                 }
+
+                properties.progress = diff / duration;  // scale 0-1
+            }
+            else {
+                visible = false;
             }
         }
 
@@ -2004,6 +2313,7 @@ links.Network.prototype._createPackage = function(properties) {
         else {
             // add new package
             this.packages.push(newPackage);
+            this._addToIndex(this.packages, this.packageIndex);
         }
 
         if (newPackage.isMoving()) {
@@ -2026,6 +2336,7 @@ links.Network.prototype._createPackage = function(properties) {
             // add new package
             newPackage = new links.Network.Package(properties, this, this.images, this.constants);
             this.packages.push(newPackage);
+            this._addToIndex(this.packages, this.packageIndex);
             if (newPackage.isMoving()) {
                 this.hasMovingPackages = true;
             }
@@ -2040,7 +2351,7 @@ links.Network.prototype._createPackage = function(properties) {
 
         index = this._findPackage(id);
         if (index !== undefined) {
-            this.packages.splice(index, 1);
+            this._removeFromIndex(this.packages, this.packageIndex, index);
         }
         else {
             throw "Package with id " + id + " not found";
@@ -2058,14 +2369,103 @@ links.Network.prototype._createPackage = function(properties) {
  *                           or undefined when not found
  */
 links.Network.prototype._findPackage = function (id) {
-    var packages = this.packages;
-    for (var n = 0, len = packages.length; n < len; n++) {
-        if (packages[n].id === id) {
-            return n;
+    return this._findInIndex(this.packages, this.packageIndex, id);
+};
+
+/**
+ * Find the index of an item by its id in an index
+ * @param {Array} items      Array with items having an id, for example
+ *                           this.nodes
+ * @param {Object} index     Map with the index of each item by id
+ * @param {*} id             Id of the item
+ * @return {Number} index    Index of the item in the array, or undefined when
+ *                           not found
+ * @private
+ */
+links.Network.prototype._findInIndex = function (items, index, id) {
+    if (!Object.prototype.hasOwnProperty.call(index, id)) {
+        return undefined;
+    }
+
+    var i = index[id];
+    if (items[i] === undefined || items[i].id !== id) {
+        // the item has an id of another type (for example 1 and "1")
+        for (i = 0; i < items.length; i++) {
+            if (items[i].id === id) {
+                return i;
+            }
         }
+        return undefined;
     }
 
-    return undefined;
+    return i;
+};
+
+/**
+ * Add the last item of an array to its index
+ * @param {Array} items      Array with items having an id
+ * @param {Object} index     Map with the index of each item by id
+ * @private
+ */
+links.Network.prototype._addToIndex = function (items, index) {
+    this.hitIndex.invalidate();
+
+    var i = items.length - 1;
+    var id = items[i].id;
+    if (id !== undefined && !Object.prototype.hasOwnProperty.call(index, id)) {
+        index[id] = i;
+    }
+};
+
+/**
+ * Remove an item from an array and from its index. The last item of the
+ * array is moved into the freed slot, so only the index entry of that item
+ * has to be updated. This changes the row of the last item, and the order
+ * in which it is drawn. Unlike _removeMarked, the order of the remaining
+ * items is not kept.
+ * @param {Array} items      Array with items having an id
+ * @param {Object} index     Map with the index of each item by id
+ * @param {Number} i         Index of the item to be removed
+ * @private
+ */
+links.Network.prototype._removeFromIndex = function (items, index, i) {
+    this.hitIndex.invalidate();
+
+    var id = items[i].id;
+    if (id !== undefined && index[id] === i) {
+        delete index[id];
+    }
+
+    var last = items.pop();
+    if (i < items.length) {
+        items[i] = last;
+        id = last.id;
+        if (id !== undefined && index[id] === items.length) {
+            index[id] = i;
+        }
+    }
+};
+
+/**
+ * Rebuild the index of an array, after items have been removed
+ * @param {Array} items      Array with items having an id
+ * @param {Object} index     Map with the index of each item by id
+ * @private
+ */
+links.Network.prototype._updateIndex = function (items, index) {
+    this.hitIndex.invalidate();
+
+    for (var id in index) {
+        if (index.hasOwnProperty(id)) {
+            delete index[id];
+        }
+    }
+    for (var i = 0, iMax = items.length; i < iMax; i++) {
+        id = items[i].id;
+        if (id !== undefined && !Object.prototype.hasOwnProperty.call(index, id)) {
+            index[id] = i;
+        }
+    }
 };
 
 /**
@@ -2136,6 +2536,8 @@ links.Network.prototype.setTimestamp = function(timestamp) {
     this._filterNodes(timestamp);
     this._filterLinks(timestamp);
     this._filterPackages(timestamp);
+    this.aggregation.invalidate();
+    this.hitIndex.invalidate();
 };
 
 
@@ -2282,18 +2684,69 @@ links.Network.prototype._redraw = function() {
     var h = this.frame.canvas.height;
     ctx.clearRect(0, 0, w, h);
 
+    if (this.stabilizing) {
+        // the nodes are still being stabilized
+        return;
+    }
+
     // set scaling and translation
     ctx.save();
     ctx.translate(this.translation.x, this.translation.y);
     ctx.scale(this.scale, this.scale);
 
-    this._drawLinks(ctx);
-    this._drawNodes(ctx);
-    this._drawPackages(ctx);
+    // when zoomed out, the groups are drawn as meta-nodes. When zoomed in,
+    // the nodes of the groups move out of their meta-node
+    var aggregation = this._updateAggregation();
+    var nodes = aggregation ? aggregation.nodes : this.nodes;
+    var edges = aggregation ? aggregation.links : this.links;
+    var expansion = this.aggregation.getExpansion();
+    if (expansion < 1) {
+        this.aggregation.interpolate(expansion);
+        this.hitIndex.invalidate();
+    }
+
+    var viewport = this._getViewport();
+    this._drawLinks(ctx, viewport, edges);
+    this._drawNodes(ctx, viewport, nodes);
+    this._drawPackages(ctx, viewport);
     this._drawSlider();
 
     // restore original scaling and translation
     ctx.restore();
+
+    if (expansion < 1) {
+        this.aggregation.restore();
+        this.hitIndex.invalidate();
+        if (!this.timer) {
+            // animate the expansion
+            this.start();
+        }
+    }
+};
+
+/**
+ * Collapse the groups when zoomed out below the scale groupAggregationScale,
+ * and expand them when zoomed in. The aggregate graph is rebuilt when the
+ * nodes or links have been changed.
+ * @return {links.Network.GroupAggregation | undefined} aggregation
+ *              The collapsed groups, or undefined when not collapsed
+ * @private
+ */
+links.Network.prototype._updateAggregation = function() {
+    var aggregation = this.aggregation;
+    var collapse = this.groupAggregation && this.scale < this.groupAggregationScale;
+    if (collapse) {
+        if (!aggregation.collapsed || !aggregation.isValid()) {
+            aggregation.collapse(this);
+        }
+        return aggregation;
+    }
+
+    if (aggregation.collapsed && aggregation.expand()) {
+        // the groups have been moved, the links between them must settle
+        this.hasMovingNodes = true;
+    }
+    return undefined;
 };
 
 /**
@@ -2367,35 +2820,102 @@ links.Network.prototype._canvasToY = function(y) {
  * @return {Node}  node, or null if not found
  */
 links.Network.prototype._getNode = function(id) {
-    for (var i = 0; i < this.nodes.length; i++) {
-        if (this.nodes[i].id == id)
-            return this.nodes[i];
+    var index = this.nodeIndex;
+    if (Object.prototype.hasOwnProperty.call(index, id)) {
+        var node = this.nodes[index[id]];
+        if (node && node.id == id) {
+            return node;
+        }
     }
 
     return null;
 };
 
+/**
+ * Get the visible area of the canvas in canvas coordinates, and the level
+ * of detail for the current scale
+ * @return {Object} viewport   Object with the visible area left, top,
+ *                             right, bottom, and the booleans labels and
+ *                             arrows, dotSize, the size in canvas
+ *                             coordinates below which nodes are drawn as dots,
+ *                             and the resolution of rendered nodes
+ * @private
+ */
+links.Network.prototype._getViewport = function() {
+    return {
+        "left": this._xToCanvas(0),
+        "top": this._yToCanvas(0),
+        "right": this._xToCanvas(this.frame.canvas.clientWidth),
+        "bottom": this._yToCanvas(this.frame.canvas.clientHeight),
+        "labels": this.scale >= this.lodLabelScale,
+        "arrows": this.scale >= this.lodArrowScale,
+        "dotSize": this.lodDotSize / this.scale,
+        "resolution": links.Network.SpriteCache.getResolution(this.scale)
+    };
+};
+
 /**
  * Redraw all nodes
  * The 2d context of a HTML canvas can be retrieved by canvas.getContext("2d");
  * @param {CanvasRenderingContext2D}   ctx
+ * @param {Object} viewport     The visible area and level of detail, see
+ *                              _getViewport
+ * @param {links.Network.Node[]} nodes   The nodes to be drawn
  */
-links.Network.prototype._drawNodes = function(ctx) {
+links.Network.prototype._drawNodes = function(ctx, viewport, nodes) {
     // first draw the unselected nodes
-    var nodes = this.nodes;
     var selected = [];
     for (var i = 0, iMax = nodes.length; i < iMax; i++) {
         if (nodes[i].isSelected()) {
             selected.push(i);
         }
         else {
-            nodes[i].draw(ctx);
+            this._drawNode(ctx, nodes[i], viewport);
         }
     }
 
     // draw the selected nodes on top
     for (var s = 0, sMax = selected.length; s < sMax; s++) {
-        nodes[selected[s]].draw(ctx);
+        this._drawNode(ctx, nodes[selected[s]], viewport);
+    }
+};
+
+/**
+ * Draw a node when it is within the viewport. Small nodes are drawn as a dot
+ * @param {CanvasRenderingContext2D}   ctx
+ * @param {links.Network.Node} node
+ * @param {Object} viewport     The visible area and level of detail, see
+ *                              _getViewport
+ * @private
+ */
+links.Network.prototype._drawNode = function(ctx, node, viewport) {
+    if (!node.width) {
+        // the size of the node is used by the hit index
+        node.resize(ctx);
+        this.hitIndex.invalidate();
+    }
+
+    // the size is unknown while the image of a node is loading
+    if (node.width) {
+        // the margin around the node contains labels drawn below the node
+        var size = Math.max(node.width, node.height);
+        if (node.x + 1.5 * size < viewport.left || node.x - 1.5 * size > viewport.right ||
+                node.y + 1.5 * size < viewport.top || node.y - 1.5 * size > viewport.bottom) {
+            // the node is not drawn, so it cannot be found at its last
+            // drawn location
+            node.left = undefined;
+            return;
+        }
+
+        if (size < viewport.dotSize || (!viewport.labels && node.style == 'text')) {
+            node.drawPlainDot(ctx, viewport.dotSize);
+            return;
+        }
+    }
+
+    node.textHidden = !viewport.labels;
+    if (!node.width || node.style == 'image' || !this.sprites.drawNode(ctx, node, viewport.resolution)) {
+        node.draw(ctx);
     }
 };
 
@@ -2403,11 +2923,82 @@ links.Network.prototype._drawNodes = function(ctx) {
  * Redraw all links
  * The 2d context of a HTML canvas can be retrieved by canvas.getContext("2d");
  * @param {CanvasRenderingContext2D}   ctx
- */
-links.Network.prototype._drawLinks = function(ctx) {
-    var links = this.links;
-    for (var i = 0, iMax = links.length; i < iMax; i++) {
-        links[i].draw(ctx);
+ * @param {Object} viewport     The visible area and level of detail, see
+ *                              _getViewport
+ * @param {links.Network.Link[]} edges   The links to be drawn
+ */
+links.Network.prototype._drawLinks = function(ctx, viewport, edges) {
+    var links = edges;
+    var batches = {};
+    var keys = [];
+    var single = [];
+    var i, iMax, link;
+
+    // plain and dashed lines are collected in batches with the same color,
+    // width, and dashes, which are drawn as a single path. Links with
+    // arrows or dots, connected to a selected node, or to themselves, are
+    // drawn one by one
+    for (i = 0, iMax = links.length; i < iMax; i++) {
+        link = links[i];
+        if (link.isVisible(viewport)) {
+            link.textHidden = !viewport.labels;
+
+            var dashed = (link.style == 'dash-line' && viewport.arrows);
+            if ((link.style == 'line' || link.style == 'dash-line' || !viewport.arrows) &&
+                    link.from != link.to && !link.from.selected && !link.to.selected) {
+                var key = dashed ?
+                    [link.color, link.width, link.dashlength, link.dashgap, link.altdashlength].join('|') :
+                    link.color + '|' + link.width;
+                var batch = batches[key];
+                if (!batch) {
+                    batch = {"dashed": dashed, "links": []};
+                    batches[key] = batch;
+                    keys.push(key);
+                }
+                batch.links.push(link);
+            }
+            else {
+                single.push(link);
+            }
+        }
+    }
+
+    for (var k = 0, kMax = keys.length; k < kMax; k++) {
+        var batchLinks = batches[keys[k]].links;
+        var batchDashed = batches[keys[k]].dashed;
+
+        ctx.strokeStyle = batchLinks[0].color;
+        ctx.lineWidth = batchLinks[0].width;
+        if (batchDashed) {
+            ctx.lineCap = 'round';
+        }
+        ctx.beginPath();
+        for (i = 0, iMax = batchLinks.length; i < iMax; i++) {
+            if (batchDashed) {
+                batchLinks[i]._dashPath(ctx);
+            }
+            else {
+                ctx.moveTo(batchLinks[i].from.x, batchLinks[i].from.y);
+                ctx.lineTo(batchLinks[i].to.x, batchLinks[i].to.y);
+            }
+        }
+        ctx.stroke();
+
+        if (viewport.labels) {
+            for (i = 0, iMax = batchLinks.length; i < iMax; i++) {
+                batchLinks[i]._drawText(ctx);
+            }
+        }
+    }
+
+    for (i = 0, iMax = single.length; i < iMax; i++) {
+        link = single[i];
+        if (viewport.arrows || link.style == 'line') {
+            link.draw(ctx);
+        }
+        else {
+            link._drawLine(ctx);
+        }
     }
 };
 
@@ -2415,11 +3006,23 @@ links.Network.prototype._drawLinks = function(ctx) {
  * Redraw all packages
  * The 2d context of a HTML canvas can be retrieved by canvas.getContext("2d");
  * @param {CanvasRenderingContext2D}   ctx
+ * @param {Object} viewport     The visible area and level of detail, see
+ *                              _getViewport
  */
-links.Network.prototype._drawPackages = function(ctx) {
+links.Network.prototype._drawPackages = function(ctx, viewport) {
     var packages = this.packages;
     for (var i = 0, iMax = packages.length; i < iMax; i++) {
-        packages[i].draw(ctx);
+        if (packages[i].isOverlappingWith(viewport)) {
+            packages[i].draw(ctx);
+        }
+    }
+
+    var stream = this.packageStream;
+    for (i = 0, iMax = stream.count; i < iMax; i++) {
+        var p = stream.get(i);
+        if (p.isOverlappingWith(viewport)) {
+            p.draw(ctx);
+        }
     }
 };
 
@@ -2476,6 +3079,29 @@ links.Network.prototype._drawSlider = function() {
  * Recalculate the best positions for all nodes
  */
 links.Network.prototype._reposition = function() {
+    this.hitIndex.invalidate();
+
+    // the same seed gives the same initial positions on every draw
+    this.random = (this.randomSeed != undefined) ?
+        links.Network.createRandom(this.randomSeed) : Math.random;
+
+    if (this.randomSeed != undefined) {
+        // deterministic random positions on a disc, with an area
+        // proportional to the number of nodes
+        var length = this.constants.links.length;
+        var spread = length * Math.max(Math.sqrt(this.nodes.length) / 2, 2);
+        var x0 = this.frame.canvas.clientWidth / 2;
+        var y0 = this.frame.canvas.clientHeight / 2;
+        for (var n = 0; n < this.nodes.length; n++) {
+            var node = this.nodes[n];
+            var r = spread * Math.sqrt(this.random());
+            var a = 2 * Math.PI * this.random();
+            if (!node.xFixed) node.x = x0 + r * Math.cos(a);
+            if (!node.yFixed) node.y = y0 + r * Math.sin(a);
+        }
+        return;
+    }
+
     // TODO: implement function reposition
 
 
@@ -2534,123 +3160,553 @@ links.Network.prototype._reposition = function() {
 
 /**
  * Find a stable position for all nodes
+ * @param {Number} [timeout]  The maximum duration in milliseconds, the
+ *                            option stabilizationTimeout when undefined
  */
-links.Network.prototype._doStabilize = function() {
-    var start = new Date();
+links.Network.prototype._doStabilize = function(timeout) {
+    this._cancelStabilize();
 
-    // find stable position
-    var count = 0;
-    var vmin = this.constants.minVelocity;
-    var stable = false;
-    while (!stable && count < this.constants.maxIterations) {
-        this._calculateForces();
-        this._discreteStepNodes();
-        stable = !this.isMoving(vmin);
-        count++;
+    if (timeout === undefined) {
+        timeout = this.constants.maxTime;
+    }
+    if (this._getWorker()) {
+        this._stabilizeInWorker(timeout);
+        return;
+    }
+    if (this.stabilizationProgressive) {
+        this._stabilizeProgressive(timeout);
+        return;
     }
 
-    var end = new Date();
+    // find stable position
+    this.physics.load(this.nodes, this.links);
+    this.stabilizationStats = this.physics.simulate(
+        this._getSimulationParams(this.constants.maxIterations, timeout));
+    this.physics.store(this.nodes);
+    this.hitIndex.invalidate();
 
-    //console.log("Stabilized in " + (end-start) + " ms, " + count + " iterations" ); // TODO: cleanup
+    this.trigger('stabilized', this.getStabilizationStats());
 };
 
 /**
- * Calculate the external forces acting on the nodes
- * Forces are caused by: links, repulsing forces between nodes, gravity
+ * Stabilize the nodes in time slices of stabilizationSlice milliseconds.
+ * Between the slices the browser can handle user input, and the network
+ * is drawn when the option stabilizationDrawIntermediate is true.
+ * The event "stabilized" is fired when finished.
+ * @param {Number} maxTime  The maximum duration in milliseconds, no limit
+ *                          when 0
+ * @private
  */
-links.Network.prototype._calculateForces = function(nodeId) {
-    // create a local link to the nodes and links, that is faster
-    var nodes = this.nodes,
-        links = this.links;
-
-    // gravity, add a small constant force to pull the nodes towards the center of 
-    // the graph 
-    // Also, the forces are reset to zero in this loop by using _setForce instead
-    // of _addForce
-    var gravity = 0.01,
-        gx = this.frame.canvas.clientWidth / 2,
-        gy = this.frame.canvas.clientHeight / 2;
-    for (var n = 0; n < nodes.length; n++) {
-        var dx = gx - nodes[n].x,
-            dy = gy - nodes[n].y,
-            angle = Math.atan2(dy, dx),
-            fx = Math.cos(angle) * gravity,
-            fy = Math.sin(angle) * gravity;
+links.Network.prototype._stabilizeProgressive = function(maxTime) {
+    var network = this,
+        constants = this.constants,
+        start = new Date().valueOf(),
+        stats = {
+            'iterations': 0,
+            'time': 0,
+            'energy': 0,
+            'stable': false
+        };
 
-        this.nodes[n]._setForce(fx, fy);
-    }
+    var slice = function () {
+        network.stabilizationTimer = undefined;
 
-    // repulsing forces between nodes
-    var minimumDistance = this.constants.nodes.distance,
-        steepness = 10; // higher value gives steeper slope of the force around the given minimumDistance
-    for (var n = 0; n < nodes.length; n++) {
-        for (var n2 = n + 1; n2 < this.nodes.length; n2++) {
-            //var dmin = (nodes[n].width + nodes[n].height + nodes[n2].width + nodes[n2].height) / 1 || minimumDistance, // TODO: dmin
-            //var dmin = (nodes[n].width + nodes[n2].width)/2  || minimumDistance, // TODO: dmin
-            //dmin = 40 + ((nodes[n].width/2 + nodes[n2].width/2) || 0),
+        var timeout = network.stabilizationSlice;
+        if (maxTime) {
+            timeout = Math.max(Math.min(timeout, start + maxTime - new Date().valueOf()), 1);
+        }
 
-            // calculate normally distributed force
-            var dx = nodes[n2].x - nodes[n].x,
-                dy = nodes[n2].y - nodes[n].y,
-                distance = Math.sqrt(dx * dx + dy * dy),
-                angle = Math.atan2(dy, dx),
+        // the nodes are loaded for each slice, as they may have been changed
+        // in the meantime
+        var nodes = network.nodes;
+        network.physics.load(nodes, network.links);
+        var result = network.physics.simulate(
+            network._getSimulationParams(constants.maxIterations - stats.iterations, timeout));
+        network.physics.store(nodes);
+        network.hitIndex.invalidate();
 
-            // TODO: correct factor for repulsing force
-            //var repulsingforce = 2 * Math.exp(-5 * (distance * distance) / (dmin * dmin) ); // TODO: customize the repulsing force
-            //repulsingforce = Math.exp(-1 * (distance * distance) / (dmin * dmin) ), // TODO: customize the repulsing force
-                repulsingforce = 1 / (1 + Math.exp((distance / minimumDistance - 1) * steepness)), // TODO: customize the repulsing force
-                fx = Math.cos(angle) * repulsingforce,
-                fy = Math.sin(angle) * repulsingforce;
+        stats.iterations += result.iterations;
+        stats.energy = result.energy;
+        stats.stable = result.stable;
+        stats.time = new Date().valueOf() - start;
 
-            this.nodes[n]._addForce(-fx, -fy);
-            this.nodes[n2]._addForce(fx, fy);
+        if (stats.stable || stats.iterations >= constants.maxIterations ||
+                (maxTime && stats.time >= maxTime)) {
+            network.physicsPending--;
+            network.stabilizing = false;
+            network.stabilizationStats = stats;
+            network._redraw();
+            network.trigger('stabilized', network.getStabilizationStats());
         }
-        /* TODO: re-implement repulsion of links
-        for (var l = 0; l < links.length; l++) {
-        	var lx = links[l].from.x+(links[l].to.x - links[l].from.x)/2,
-        	    ly = links[l].from.y+(links[l].to.y - links[l].from.y)/2,
-        	    
-                // calculate normally distributed force
-                dx = nodes[n].x - lx,
-                dy = nodes[n].y - ly,
-                distance = Math.sqrt(dx * dx + dy * dy),
-                angle = Math.atan2(dy, dx),
- 
+        else {
+            network.stabilizationTimer = window.setTimeout(slice, 0);
+        }
+    };
 
-            // TODO: correct factor for repulsing force
-            //var repulsingforce = 2 * Math.exp(-5 * (distance * distance) / (dmin * dmin) ); // TODO: customize the repulsing force
-            //repulsingforce = Math.exp(-1 * (distance * distance) / (dmin * dmin) ), // TODO: customize the repulsing force
-                repulsingforce = 1 / (1 + Math.exp((distance / (minimumDistance / 2) - 1) * steepness)), // TODO: customize the repulsing force
-                fx = Math.cos(angle) * repulsingforce,
-                fy = Math.sin(angle) * repulsingforce;
-            nodes[n]._addForce(fx, fy);
-            links[l].from._addForce(-fx/2,-fy/2);
-            links[l].to._addForce(-fx/2,-fy/2);            
+    // while pending, the animation timer keeps redrawing the network but
+    // does not move the nodes
+    this.physicsPending++;
+    this.stabilizing = !this.stabilizationDrawIntermediate;
+    this.stabilizationTimer = window.setTimeout(slice, 0);
+};
+
+/**
+ * Cancel a running progressive stabilization, and ignore the results of the
+ * simulations running in the worker
+ * @private
+ */
+links.Network.prototype._cancelStabilize = function() {
+    if (this.stabilizationTimer) {
+        window.clearTimeout(this.stabilizationTimer);
+        this.stabilizationTimer = undefined;
+        this.physicsPending--;
+    }
+
+    // a simulation in the worker cannot be stopped, its result is ignored
+    this.physicsGeneration++;
+    this.stabilizing = false;
+};
+
+/**
+ * Get the remaining time of the option stabilizationTimeout
+ * @param {Number} start      Start time of the stabilization in ms
+ * @return {Number} timeout   Remaining time in ms, at least 1 so that it is
+ *                            not mistaken for no limit, or 0 when there is
+ *                            no timeout
+ * @private
+ */
+links.Network.prototype._getRemainingTime = function(start) {
+    var maxTime = this.constants.maxTime;
+    if (!maxTime) {
+        return 0;
+    }
+    return Math.max(maxTime - (new Date().valueOf() - start), 1);
+};
+
+/**
+ * Get the parameters for a simulation of the nodes of this network
+ * @param {Number} iterations   The maximum number of steps
+ * @param {Number} [timeout]    The maximum duration in milliseconds, no
+ *                              limit when 0 or undefined
+ * @return {Object} params      Parameters for links.Network.Physics.simulate
+ * @private
+ */
+links.Network.prototype._getSimulationParams = function(iterations, timeout) {
+    return {
+        'gx': this.frame.canvas.clientWidth / 2,
+        'gy': this.frame.canvas.clientHeight / 2,
+        'minimumDistance': this.constants.nodes.distance,
+        'solver': this.physicsSolver,
+        'interval': this.refreshRate / 1000.0, // in seconds
+        'vmin': this.constants.minVelocity,
+        'minForce': this.constants.minForce,
+        'minEnergy': this.constants.minEnergy,
+        'iterations': iterations,
+        'timeout': timeout || 0
+    };
+};
+
+/**
+ * Get statistics of the last stabilization of the network.
+ * @return {Object | undefined} stats   Object with the number of
+ *                                      iterations, the elapsed time in ms,
+ *                                      the final kinetic energy, and
+ *                                      whether the network is stable.
+ *                                      Undefined when the network has not
+ *                                      been stabilized.
+ */
+links.Network.prototype.getStabilizationStats = function() {
+    var stats = this.stabilizationStats;
+    if (!stats) {
+        return undefined;
+    }
+    return {
+        'iterations': stats.iterations,
+        'time': stats.time,
+        'energy': stats.energy,
+        'stable': stats.stable
+    };
+};
+
+/**
+ * Get the current positions of all nodes, for example to store a stabilized
+ * layout and restore it later via setPositions or the option positions.
+ * @return {Object} positions   An object with the id of each node as key,
+ *                              and an object {x: Number, y: Number} as value
+ */
+links.Network.prototype.getPositions = function() {
+    var positions = {};
+    for (var i = 0, iMax = this.nodes.length; i < iMax; i++) {
+        var node = this.nodes[i];
+        positions[node.id] = {"x": node.x, "y": node.y};
+    }
+    return positions;
+};
+
+/**
+ * Set the positions of nodes, for example a layout retrieved before via
+ * getPositions. The nodes are not fixed, and nodes without a position are
+ * placed near their neighbours. When all nodes got a position, the nodes
+ * are considered stable and the simulation is not restarted.
+ * @param {Object} positions   An object with the id of a node as key, and an
+ *                             object {x: Number, y: Number} as value
+ */
+links.Network.prototype.setPositions = function(positions) {
+    this._cancelStabilize();
+    this._applyPositions(positions);
+    this._redraw();
+    this.start();
+};
+
+/**
+ * Move nodes to the provided positions, and stop their movement. The state
+ * hasMovingNodes is cleared when all nodes got a position.
+ * @param {Object} positions   An object with the id of a node as key, and an
+ *                             object {x: Number, y: Number} as value
+ */
+links.Network.prototype._applyPositions = function(positions) {
+    this.hitIndex.invalidate();
+
+    var missing = [];
+    for (var i = 0, iMax = this.nodes.length; i < iMax; i++) {
+        var node = this.nodes[i];
+        var position = positions.hasOwnProperty(node.id) ?
+            positions[node.id] : undefined;
+        if (position && position.x != undefined && position.y != undefined) {
+            if (!node.xFixed) node.x = Number(position.x);
+            if (!node.yFixed) node.y = Number(position.y);
+            node.vx = 0;
+            node.vy = 0;
+        }
+        else if (!node.isFixed()) {
+            missing.push(node);
         }
-        */
     }
 
-    // forces caused by the links, modelled as springs
-    for (var l = 0, lMax = links.length; l < lMax; l++) {
-        var link = links[l],
-
-            dx = (link.to.x - link.from.x),
-            dy = (link.to.y - link.from.y),
-        //linkLength = (link.from.width + link.from.height + link.to.width + link.to.height)/2 || link.length, // TODO: dmin
-        //linkLength = (link.from.width + link.to.width)/2 || link.length, // TODO: dmin
-        //linkLength = 20 + ((link.from.width + link.to.width) || 0) / 2,
-            linkLength = link.length,
-            length =  Math.sqrt(dx * dx + dy * dy),
-            angle = Math.atan2(dy, dx),
+    if (missing.length == 0) {
+        this.hasMovingNodes = false;
+    }
+    else if (missing.length < this.nodes.length) {
+        // place the nodes without position near their neighbours
+        for (i = 0; i < missing.length; i++) {
+            missing[i].seedPending = true;
+        }
+        this._seedNodes(missing);
+        this.hasMovingNodes = true;
+    }
+};
+
+/**
+ * Get the worker running the simulation. The worker is created when the
+ * option physicsWorker is true and the browser supports workers.
+ * @return {links.Network.PhysicsWorker | undefined} worker
+ * @private
+ */
+links.Network.prototype._getWorker = function() {
+    if (this.physicsWorker && !this.worker && links.Network.PhysicsWorker.isSupported()) {
+        this.worker = new links.Network.PhysicsWorker();
+    }
+    else if (!this.physicsWorker && this.worker && !this.physicsPending) {
+        this.worker.terminate();
+        this.worker = undefined;
+    }
+
+    return this.physicsWorker ? this.worker : undefined;
+};
+
+/**
+ * Send the nodes to the worker to simulate a number of steps. The nodes are
+ * updated when the worker is finished.
+ * @param {Number} iterations          The maximum number of steps
+ * @param {Number} [timeout]           The maximum duration in milliseconds
+ * @param {function} [callback]        Invoked as callback(stats) when the
+ *                                     worker is finished, unless the
+ *                                     simulation is cancelled via
+ *                                     _cancelStabilize
+ * @private
+ */
+links.Network.prototype._simulateInWorker = function(iterations, timeout, callback) {
+    // keep the nodes of this request, the nodes of the network may change
+    // while the worker is busy
+    var nodes = this.nodes.slice(0);
+    this.physics.load(nodes, this.links);
+
+    var params = this._getSimulationParams(iterations, timeout);
+
+    var network = this;
+    var generation = this.physicsGeneration;
+    this.physicsPending++;
+    this.worker.simulate(this.physics, params, function (stats) {
+        network.physicsPending--;
+        if (generation != network.physicsGeneration) {
+            // cancelled, the nodes have been positioned in the meantime
+            return;
+        }
+        network.physics.store(nodes);
+        network.hitIndex.invalidate();
+        network.hasMovingNodes = network.hasMovingNodes || !stats.stable;
+        if (callback) {
+            callback(stats);
+        }
+    });
+};
+
+/**
+ * Find a stable position for all nodes in the worker. The network is not
+ * drawn until the nodes are stabilized. When draw is waiting for the
+ * stabilization, the event "ready" is fired after "stabilized".
+ * @param {Number} maxTime  The maximum duration in milliseconds, no limit
+ *                          when 0
+ * @private
+ */
+links.Network.prototype._stabilizeInWorker = function(maxTime) {
+    var network = this;
+    this.stabilizing = true;
+    this._simulateInWorker(this.constants.maxIterations, maxTime, function (stats) {
+        network.stabilizationStats = stats;
+        network.stabilizing = false;
+        network._redraw();
+        network.trigger('stabilized', network.getStabilizationStats());
+        if (network.readyPending) {
+            network.readyPending = false;
+            network.trigger('ready');
+        }
+    });
+};
+
+/**
+ * Place new nodes near the nodes they are linked to, and find a stable
+ * position for the nodes within a number of hops (option relaxationDepth)
+ * around the given nodes. All other nodes keep their position, so the
+ * simulation only involves the nodes around the given nodes. These are found
+ * via a quadtree on the positions of all nodes, which takes O(n log n) to
+ * build.
+ * @param {links.Network.Node[]} nodes   The added nodes, or the nodes of
+ *                                       added links
+ * @private
+ */
+links.Network.prototype._relaxLocal = function(nodes) {
+    var i, iMax, j, jMax, node, other, link;
+
+    this._seedNodes(nodes);
+
+    // collect the nodes within relaxationDepth hops (breadth first). The
+    // visited nodes and links are marked with a new stamp
+    var stamp = this.relaxStamp = (this.relaxStamp || 0) + 1;
+    var active = [];
+    for (i = 0, iMax = nodes.length; i < iMax; i++) {
+        node = nodes[i];
+        if (node.relaxStamp !== stamp) {
+            node.relaxStamp = stamp;
+            active.push(node);
+        }
+    }
+    var start = 0;
+    for (var depth = 0; depth < this.relaxationDepth; depth++) {
+        var end = active.length;
+        for (i = start; i < end; i++) {
+            node = active[i];
+            for (j = 0, jMax = node.links.length; j < jMax; j++) {
+                link = node.links[j];
+                other = (link.from == node) ? link.to : link.from;
+                if (other && other.relaxStamp !== stamp) {
+                    other.relaxStamp = stamp;
+                    active.push(other);
+                }
+            }
+        }
+        start = end;
+    }
+
+    // the nodes around the relaxed nodes are pinned: the linked nodes, and
+    // the nodes close enough to repulse them
+    var pinned = [];
+    var sublinks = [];
+    for (i = 0, iMax = active.length; i < iMax; i++) {
+        node = active[i];
+        for (j = 0, jMax = node.links.length; j < jMax; j++) {
+            link = node.links[j];
+            other = (link.from == node) ? link.to : link.from;
+            if (other && other.relaxStamp !== stamp) {
+                other.relaxStamp = stamp;
+                pinned.push(other);
+            }
+            if (other && link.relaxStamp !== stamp) {
+                link.relaxStamp = stamp;
+                sublinks.push(link);
+            }
+        }
+    }
+
+    var count = this.nodes.length;
+    if (!this.relaxX || this.relaxX.length < count) {
+        this.relaxX = links.Network.createFloatArray(2 * count);
+        this.relaxY = links.Network.createFloatArray(2 * count);
+    }
+    for (i = 0; i < count; i++) {
+        this.relaxX[i] = this.nodes[i].x;
+        this.relaxY[i] = this.nodes[i].y;
+    }
+    var tree = this.relaxTree || (this.relaxTree = new links.Network.QuadTree());
+    tree.build(this.relaxX, this.relaxY, count);
+
+    var cutoff = this.constants.nodes.distance * links.Network.Physics.CUTOFF;
+    var nearby = [];
+    for (i = 0, iMax = active.length; i < iMax; i++) {
+        node = active[i];
+        nearby.length = 0;
+        tree.query(this.relaxX, this.relaxY, node.x - cutoff, node.y - cutoff,
+            node.x + cutoff, node.y + cutoff, nearby);
+        for (j = 0, jMax = nearby.length; j < jMax; j++) {
+            other = this.nodes[nearby[j]];
+            if (other.relaxStamp !== stamp) {
+                other.relaxStamp = stamp;
+                pinned.push(other);
+            }
+        }
+    }
+
+    // find a stable position for the active nodes
+    var subnodes = active.concat(pinned);
+    var physics = this.localPhysics || (this.localPhysics = new links.Network.Physics());
+    physics.load(subnodes, sublinks);
+    for (i = active.length, iMax = subnodes.length; i < iMax; i++) {
+        physics.pin(i);
+    }
+
+    physics.simulate(this._getSimulationParams(this.constants.maxIterations, this.constants.maxTime));
+    physics.store(subnodes);
+    this.hitIndex.invalidate();
+};
+
+/**
+ * Find an initial layout for the nodes via coarsened versions of the
+ * network. The coarsest version is laid out from random positions, and each
+ * finer version is refined for multilevelIterations iterations, starting
+ * from the positions of the coarser version. The network itself is
+ * stabilized afterwards as usual, from a layout which is already close to
+ * stable. When the option stabilizationTimeout has passed, the remaining
+ * levels are only interpolated.
+ * @param {Number} start  Start time of the stabilization in ms
+ * @private
+ */
+links.Network.prototype._layoutMultilevel = function(start) {
+    var layout = new links.Network.MultilevelLayout(this.nodes, this.links, this.random);
+    var count = layout.getLevelCount();
+    if (count < 2) {
+        return;
+    }
+
+    // random positions for the coarsest level, on a disc with an area
+    // proportional to the number of nodes
+    var length = this.constants.links.length;
+    var spread = length * Math.sqrt(this.nodes.length) / 2;
+    var cx = this.frame.canvas.clientWidth / 2,
+        cy = this.frame.canvas.clientHeight / 2;
+    var nodes = layout.getLevel(count - 1).nodes;
+    for (var i = 0, iMax = nodes.length; i < iMax; i++) {
+        var node = nodes[i];
+        var r = spread * Math.sqrt(this.random());
+        var a = 2 * Math.PI * this.random();
+        if (!node.xFixed) node.x = cx + r * Math.cos(a);
+        if (!node.yFixed) node.y = cy + r * Math.sin(a);
+    }
+
+    var physics = this.layoutPhysics || (this.layoutPhysics = new links.Network.Physics());
+    for (var l = count - 1; l > 0; l--) {
+        var level = layout.getLevel(l);
+        layout.setLinkLength(l, length);
+
+        // the coarsest level is stabilized, the other levels refined
+        var maxTime = this.constants.maxTime;
+        if (!maxTime || new Date().valueOf() - start < maxTime) {
+            var params = this._getSimulationParams(
+                (l == count - 1) ? this.constants.maxIterations : this.multilevelIterations,
+                this._getRemainingTime(start));
+            params.minimumDistance *= Math.sqrt(this.nodes.length / level.nodes.length);
+            physics.load(level.nodes, level.links);
+            physics.simulate(params);
+            physics.store(level.nodes);
+        }
+
+        layout.interpolate(l - 1, length);
+    }
+    this.hitIndex.invalidate();
+};
+
+/**
+ * Give nodes which have not yet been positioned a position near the nodes
+ * they are linked to. Nodes without positioned neighbours are placed around
+ * the center, and are placed again when links to them are added.
+ * @param {links.Network.Node[]} nodes
+ * @private
+ */
+links.Network.prototype._seedNodes = function(nodes) {
+    this.hitIndex.invalidate();
 
-            springforce = link.stiffness * (linkLength - length),
+    var pending = [];
+    var i, iMax;
+    for (i = 0, iMax = nodes.length; i < iMax; i++) {
+        if (nodes[i].seedPending) {
+            pending.push(nodes[i]);
+        }
+    }
+
+    // place the nodes with a placed neighbour, until no more nodes can be
+    // placed this way (for example a chain of new nodes)
+    var length = this.constants.links.length;
+    var placed = true;
+    while (placed && pending.length > 0) {
+        placed = false;
+        var remaining = [];
+        for (i = 0, iMax = pending.length; i < iMax; i++) {
+            var node = pending[i];
+            var x = 0, y = 0, count = 0;
+            for (var j = 0, jMax = node.links.length; j < jMax; j++) {
+                var link = node.links[j];
+                var other = (link.from == node) ? link.to : link.from;
+                if (other && other != node && !other.seedPending) {
+                    x += other.x;
+                    y += other.y;
+                    count++;
+                }
+            }
 
-            fx = Math.cos(angle) * springforce,
-            fy = Math.sin(angle) * springforce;
+            if (count > 0) {
+                var angle = 2 * Math.PI * this.random();
+                var radius = length / count;
+                node.x = x / count + radius * Math.cos(angle);
+                node.y = y / count + radius * Math.sin(angle);
+                node.seedPending = false;
+                placed = true;
+            }
+            else {
+                remaining.push(node);
+            }
+        }
+        pending = remaining;
+    }
 
-        link.from._addForce(-fx, -fy);
-        link.to._addForce(fx, fy);
+    // place nodes without placed neighbours around the center
+    var cx = this.frame.canvas.clientWidth / 2,
+        cy = this.frame.canvas.clientHeight / 2;
+    for (i = 0, iMax = pending.length; i < iMax; i++) {
+        var a = 2 * Math.PI * this.random();
+        pending[i].x = cx + length * Math.cos(a);
+        pending[i].y = cy + length * Math.sin(a);
     }
+};
+
+
+/**
+ * Calculate the external forces acting on the nodes
+ * Forces are caused by: links, repulsing forces between nodes, gravity
+ * The state of the nodes must be loaded in this.physics.
+ */
+links.Network.prototype._calculateForces = function() {
+    var gx = this.frame.canvas.clientWidth / 2,
+        gy = this.frame.canvas.clientHeight / 2;
+    this.physics.calculateForces(gx, gy, this.constants.nodes.distance, this.physicsSolver);
 
     /* TODO: re-implement repulsion of links
     // repulsing forces between links
@@ -2693,30 +3749,23 @@ links.Network.prototype._calculateForces = function(nodeId) {
 
 /**
  * Check if any of the nodes is still moving
+ * The state of the nodes must be loaded in this.physics.
  * @param {number} vmin   the minimum velocity considered as "moving"
  * @return {boolean}      true if moving, false if non of the nodes is moving
  */
 links.Network.prototype.isMoving = function(vmin) {
-    // TODO: ismoving does not work well: should check the kinetic energy, not its velocity
-    var nodes = this.nodes;
-    for (var n = 0, nMax = nodes.length; n < nMax; n++) {
-        if (nodes[n].isMoving(vmin)) {
-            return true;
-        }
-    }
-    return false;
+    return this.physics.isMoving(vmin, this.constants.minForce) &&
+        !this.physics.isStable(this.constants.minEnergy);
 };
 
 
 /**
  * Perform one discrete step for all nodes
+ * The state of the nodes must be loaded in this.physics.
  */
 links.Network.prototype._discreteStepNodes = function() {
     var interval = this.refreshRate / 1000.0; // in seconds
-    var nodes = this.nodes;
-    for (var n = 0, nMax = nodes.length; n < nMax; n++) {
-        nodes[n].discreteStep(interval);
-    }
+    this.physics.step(interval);
 };
 
 
@@ -2729,6 +3778,8 @@ links.Network.prototype._discreteStepPackages = function() {
     for (var n = 0, nMax = packages.length; n < nMax; n++) {
         packages[n].discreteStep(interval);
     }
+
+    this.packageStream.discreteStep(interval);
 };
 
 
@@ -2737,17 +3788,30 @@ links.Network.prototype._discreteStepPackages = function() {
  * also checks if there are moving packages
  */
 links.Network.prototype._deleteFinishedPackages = function() {
-    var n = 0;
+    var packages = this.packages;
+    var count = 0;
     var hasMovingPackages = false;
-    while (n < this.packages.length) {
-        if (this.packages[n].isFinished()) {
-            this.packages.splice(n, 1);
-            n--;
-        }
-        else if (this.packages[n].isMoving()) {
-            hasMovingPackages = true;
+    for (var n = 0, nMax = packages.length; n < nMax; n++) {
+        if (!packages[n].isFinished()) {
+            if (packages[n].isMoving()) {
+                hasMovingPackages = true;
+            }
+            packages[count] = packages[n];
+            count++;
         }
-        n++;
+    }
+    if (count < packages.length) {
+        packages.length = count;
+        this._updateIndex(packages, this.packageIndex);
+    }
+
+    this.packageStream.deleteFinished();
+    if (this.packageStream.count > 0) {
+        hasMovingPackages = true;
+    }
+
+    if (this.popupNode instanceof links.Network.Package && this.popupNode.isFinished()) {
+        this._hidePopup();
     }
 
     this.hasMovingPackages = hasMovingPackages;
@@ -2757,12 +3821,31 @@ links.Network.prototype._deleteFinishedPackages = function() {
  * Start animating nodes, links, and packages.
  */
 links.Network.prototype.start = function() {
-    if (this.hasMovingNodes) {
-        this._calculateForces();
-        this._discreteStepNodes();
+    // when the groups are collapsed, the much smaller aggregate graph is
+    // simulated, and the nodes of the groups follow their meta-node
+    var aggregation = this._updateAggregation();
 
-        var vmin = this.constants.minVelocity;
-        this.hasMovingNodes = this.isMoving(vmin);
+    if (this.hasMovingNodes && !this.physicsPending) {
+        if (!aggregation && this._getWorker()) {
+            // simulate one step in the worker. hasMovingNodes is set to true
+            // again when the worker is finished and the nodes are still moving
+            this.hasMovingNodes = false;
+            this._simulateInWorker(1);
+        }
+        else {
+            var nodes = aggregation ? aggregation.nodes : this.nodes;
+            this.physics.load(nodes, aggregation ? aggregation.links : this.links);
+            this._calculateForces();
+            this._discreteStepNodes();
+
+            var vmin = this.constants.minVelocity;
+            this.hasMovingNodes = this.isMoving(vmin);
+            this.physics.store(nodes);
+            if (aggregation) {
+                aggregation.moveMembers();
+            }
+            this.hitIndex.invalidate();
+        }
     }
 
     if (this.hasMovingPackages) {
@@ -2770,7 +3853,8 @@ links.Network.prototype.start = function() {
         this._deleteFinishedPackages();
     }
 
-    if (this.hasMovingNodes || this.hasMovingLinks || this.hasMovingPackages) {
+    if (this.hasMovingNodes || this.physicsPending || this.hasMovingLinks || this.hasMovingPackages ||
+            this.aggregation.isExpanding()) {
         // start animation. only start timer if it is not already running
         if (!this.timer) {
             var network = this;
@@ -3503,8 +4587,22 @@ links.Network.Node.prototype._drawText = function (ctx) {
 };
 
 
+/**
+ * Draw the node as a plain dot, used when the node is too small to show any
+ * details
+ * @param {CanvasRenderingContext2D}   ctx
+ * @param {Number} size     Size of the dot
+ */
+links.Network.Node.prototype.drawPlainDot = function (ctx, size) {
+    this.left = this.x - this.width / 2;
+    this.top = this.y - this.height / 2;
+
+    ctx.fillStyle = this.selected ? this.highlightColor : (this.backgroundColor || this.fontColor);
+    ctx.fillRect(this.x - size / 2, this.y - size / 2, size, size);
+};
+
 links.Network.Node.prototype._text = function (ctx, text, x, y, align, baseline) {
-    if (text) {
+    if (text && !this.textHidden) {
         ctx.font = (this.selected ? "bold " : "") + this.fontSize + "px " + this.fontFace;
         ctx.fillStyle = this.fontColor || "black";
         ctx.textAlign = align || "center";
@@ -3851,6 +4949,22 @@ links.Network.Link.prototype.isOverlappingWith = function(obj) {
     return (dist < distMax);
 };
 
+/**
+ * Check whether the link is (partly) located inside the given area
+ * @param {Object} obj   an object with parameters left, top, right, bottom
+ * @return {boolean}     True if the bounding box of the link overlaps the area
+ */
+links.Network.Link.prototype.isVisible = function(obj) {
+    var from = this.from,
+        to = this.to,
+        margin = (from == to) ? this.length / Math.PI + Math.max(from.width || 0, from.height || 0) : 0;
+
+    return (Math.min(from.x, to.x) - margin < obj.right &&
+        Math.max(from.x, to.x) + margin > obj.left &&
+        Math.min(from.y, to.y) - margin < obj.bottom &&
+        Math.max(from.y, to.y) + margin > obj.top);
+};
+
 /**
  * Calculate the distance between a point (x3,y3) and a line segment from
  * (x1,y1) to (x2,y2).
@@ -4003,7 +5117,7 @@ links.Network.Link.prototype._drawText = function (ctx) {
  * @param {Number} y
  */
 links.Network.Link.prototype._text = function (ctx, text, x, y) {
-    if (text) {
+    if (text && !this.textHidden) {
         // TODO: cache the calculated size
         ctx.font = ((this.from.selected || this.to.selected) ? "bold " : "") +
             this.fontSize + "px " + this.fontFace;
@@ -4070,6 +5184,19 @@ links.Network.Link.prototype._drawDashLine = function(ctx) {
     // draw dashed line
     ctx.beginPath();
     ctx.lineCap = 'round';
+    this._dashPath(ctx);
+    ctx.stroke();
+
+    // draw text
+    this._drawText(ctx);
+};
+
+/**
+ * Add the dashes of a dashed line to the current path of the canvas
+ * @param {CanvasRenderingContext2D}   ctx
+ * @private
+ */
+links.Network.Link.prototype._dashPath = function(ctx) {
 	if (this.altdashlength != undefined) //If an alt dash value has been set add to the array this value
     {
     	ctx.dashedLine(this.from.x,this.from.y,this.to.x,this.to.y,[this.dashlength,this.dashgap,this.altdashlength,this.dashgap]);
@@ -4083,10 +5210,6 @@ links.Network.Link.prototype._drawDashLine = function(ctx) {
     	ctx.moveTo(this.from.x, this.from.y);
         ctx.lineTo(this.to.x, this.to.y);
 	}
-    ctx.stroke();
-
-    // draw text
-    this._drawText(ctx);
 };
 
 /**
@@ -4403,11 +5526,23 @@ links.Network.Package = function (properties, network, imagelist, constants) {
         throw "No network provided";
     }
 
+    this.imagelist = imagelist;
+    this.network = network;
+    this.init(properties, constants);
+};
+
+links.Network.Package.DEFAULT_DURATION = 1.0; // seconds
+
+/**
+ * Reset all properties of the package to their default values, and apply the
+ * provided properties. Used to reuse a package object for a new package.
+ * @param {Object} properties an object with properties
+ * @param {Object} constants  and object with default, global properties
+ */
+links.Network.Package.prototype.init = function(properties, constants) {
     // constants
     this.radiusMin = constants.packages.radiusMin;
     this.radiusMax = constants.packages.radiusMax;
-    this.imagelist = imagelist;
-    this.network = network;
 
     // initialize variables
     this.id =        undefined;
@@ -4424,13 +5559,15 @@ links.Network.Package = function (properties, network, imagelist, constants) {
     this.duration = constants.packages.duration;
     this.autoProgress = true;
     this.radiusFixed = false;
+    this.dashlength = undefined;
+    this.dashgap = undefined;
+    this.altdashlength = undefined;
+    this.imageObj = undefined;
 
     // set properties
     this.setProperties(properties, constants);
 };
 
-links.Network.Package.DEFAULT_DURATION = 1.0; // seconds
-
 /**
  * Set or overwrite properties for the package
  * @param {Object} properties an object with properties
@@ -4715,51 +5852,731 @@ links.Network.Package.prototype._drawImage = function (ctx) {
 
 
 /**
- * @class Groups
- * This class can store groups and properties specific for groups.
+ * @class GroupAggregation
+ * The aggregate graph of a network, in which each group of nodes is
+ * collapsed into a single meta-node. The links between the groups are
+ * merged into meta-links with the summed value of the original links, and
+ * the links within a group are left out. Nodes without group, and groups
+ * with a single node, are kept as they are.
+ *
+ * While collapsed, the aggregate graph is simulated and drawn instead of the
+ * network, and the nodes of a group follow their meta-node. When expanded,
+ * the nodes move out of their meta-node in an animation.
  */
-links.Network.Groups = function () {
-    this.clear();
-    this.defaultIndex = 0;
+links.Network.GroupAggregation = function () {
+    this.nodes = [];      // meta-nodes and the nodes without group
+    this.links = [];      // meta-links and the links between nodes without group
+    this.metaNodes = [];  // meta-nodes, each with an array members
+    this.collapsed = false;
+    this.valid = false;
+    this.moved = false;   // true when the meta-nodes moved while collapsed
+    this.expandStart = undefined;
+    this.saved = [];      // positions of the members during the expansion
 };
 
-
 /**
- * default constants for group colors
+ * Duration of the expansion of the groups in milliseconds
  */
-links.Network.Groups.DEFAULT = [
-    {"borderColor": "#2B7CE9", "backgroundColor": "#97C2FC", "highlightColor": "#D2E5FF"}, // blue
-    {"borderColor": "#FFA500", "backgroundColor": "#FFFF00", "highlightColor": "#FFFFA3"}, // yellow
-    {"borderColor": "#FA0A10", "backgroundColor": "#FB7E81", "highlightColor": "#FFAFB1"}, // red
-    {"borderColor": "#41A906", "backgroundColor": "#7BE141", "highlightColor": "#A1EC76"}, // green
-    {"borderColor": "#E129F0", "backgroundColor": "#EB7DF4", "highlightColor": "#F0B3F5"}, // magenta
-    {"borderColor": "#7C29F0", "backgroundColor": "#AD85E4", "highlightColor": "#D3BDF0"}, // purple
-    {"borderColor": "#C37F00", "backgroundColor": "#FFA807", "highlightColor": "#FFCA66"}, // orange
-    {"borderColor": "#4220FB", "backgroundColor": "#6E6EFD", "highlightColor": "#9B9BFD"}, // darkblue
-    {"borderColor": "#FD5A77", "backgroundColor": "#FFC0CB", "highlightColor": "#FFD1D9"}, // pink
-    {"borderColor": "#4AD63A", "backgroundColor": "#C2FABC", "highlightColor": "#E6FFE3"}  // mint
-];
+links.Network.GroupAggregation.EXPAND_DURATION = 500;
 
+/**
+ * Mark the aggregate graph as outdated, for example when nodes or links have
+ * been changed
+ */
+links.Network.GroupAggregation.prototype.invalidate = function () {
+    this.valid = false;
+};
 
 /**
- * Clear all groups
+ * Check whether the aggregate graph is up to date
+ * @return {boolean} valid
  */
-links.Network.Groups.prototype.clear = function () {
-    this.groups = {};
-    this.groups.length = function()
-    {
-        var i = 0;
-        for ( var p in this ) {
-            if (this.hasOwnProperty(p)) {
-                i++;
+links.Network.GroupAggregation.prototype.isValid = function () {
+    return this.valid;
+};
+
+/**
+ * Build the aggregate graph from the current nodes and links of a network,
+ * and collapse the groups. Each meta-node is placed at the center of its
+ * nodes.
+ * @param {links.Network} network
+ */
+links.Network.GroupAggregation.prototype.collapse = function (network) {
+    var i, iMax, j, jMax, node, meta;
+    var constants = network.constants;
+
+    // collect the nodes per group
+    var groups = {};
+    var names = [];
+    for (i = 0, iMax = network.nodes.length; i < iMax; i++) {
+        node = network.nodes[i];
+        node.aggregate = undefined;
+        if (node.group != undefined) {
+            var group = groups[node.group];
+            if (!group) {
+                group = [];
+                groups[node.group] = group;
+                names.push(node.group);
             }
+            group.push(node);
         }
-        return i;
     }
-};
 
-
-/**
+    // create a meta-node per group with at least two nodes, sized by the
+    // number of nodes
+    this.nodes = [];
+    this.metaNodes = [];
+    for (i = 0, iMax = names.length; i < iMax; i++) {
+        var members = groups[names[i]];
+        if (members.length > 1) {
+            meta = new links.Network.Node({
+                "id": names[i],
+                "group": names[i],
+                "text": names[i] + " (" + members.length + ")",
+                "style": "dot",
+                "value": members.length
+            }, network.images, network.groups, constants);
+            meta.radiusMin = constants.nodes.radiusMax;
+            meta.radiusMax = 4 * constants.nodes.radiusMax;
+
+            var x = 0, y = 0;
+            for (j = 0, jMax = members.length; j < jMax; j++) {
+                x += members[j].x;
+                y += members[j].y;
+            }
+            meta.x = x / members.length;
+            meta.y = y / members.length;
+            for (j = 0, jMax = members.length; j < jMax; j++) {
+                node = members[j];
+                node.aggregate = meta;
+                node.aggregateX = node.x - meta.x;
+                node.aggregateY = node.y - meta.y;
+            }
+            meta.members = members;
+            this.metaNodes.push(meta);
+            this.nodes.push(meta);
+        }
+    }
+    for (i = 0, iMax = network.nodes.length; i < iMax; i++) {
+        node = network.nodes[i];
+        if (!node.aggregate) {
+            this.nodes.push(node);
+        }
+    }
+    network._updateValueRange(this.metaNodes);
+
+    // merge the links between groups into meta-links. The meta-links are
+    // only attached to the meta-nodes, the other nodes keep their links
+    var slots = [];
+    for (i = 0, iMax = this.nodes.length; i < iMax; i++) {
+        this.nodes[i].aggregateSlot = i;
+        slots.push(this.nodes[i]);
+    }
+    var resolver = {
+        "_getNode": function (slot) {
+            return slots[slot];
+        }
+    };
+    var merged = {};
+    var metaLinks = [];
+    this.links = [];
+    for (i = 0, iMax = network.links.length; i < iMax; i++) {
+        var link = network.links[i];
+        var from = link.from.aggregate || link.from;
+        var to = link.to.aggregate || link.to;
+        if (from === to) {
+            // link within a group
+            continue;
+        }
+        if (from === link.from && to === link.to) {
+            this.links.push(link);
+            continue;
+        }
+
+        var a = Math.min(from.aggregateSlot, to.aggregateSlot),
+            b = Math.max(from.aggregateSlot, to.aggregateSlot);
+        var key = a + "-" + b;
+        var value = (link.value != undefined) ? link.value : 1;
+        var metaLink = merged[key];
+        if (metaLink) {
+            metaLink.value += value;
+        }
+        else {
+            metaLink = new links.Network.Link({
+                "from": a,
+                "to": b,
+                "value": value
+            }, resolver, constants);
+            if (metaLink.from.members) {
+                metaLink.from.attachLink(metaLink);
+            }
+            if (metaLink.to.members) {
+                metaLink.to.attachLink(metaLink);
+            }
+            merged[key] = metaLink;
+            metaLinks.push(metaLink);
+            this.links.push(metaLink);
+        }
+    }
+    network._updateValueRange(metaLinks);
+
+    this.collapsed = true;
+    this.valid = true;
+    this.moved = false;
+    this.expandStart = undefined;
+};
+
+/**
+ * Move the nodes of each group along with their meta-node, keeping their
+ * position relative to the meta-node
+ */
+links.Network.GroupAggregation.prototype.moveMembers = function () {
+    for (var i = 0, iMax = this.metaNodes.length; i < iMax; i++) {
+        var meta = this.metaNodes[i];
+        var members = meta.members;
+        for (var j = 0, jMax = members.length; j < jMax; j++) {
+            var node = members[j];
+            if (!node.xFixed) {
+                node.x = meta.x + node.aggregateX;
+            }
+            if (!node.yFixed) {
+                node.y = meta.y + node.aggregateY;
+            }
+        }
+    }
+    this.moved = true;
+};
+
+/**
+ * Expand the groups, and start the animation of the nodes moving out of
+ * their meta-node
+ * @return {boolean} moved   True when the meta-nodes have been moved while
+ *                           collapsed, so the links between the groups may
+ *                           need to settle
+ */
+links.Network.GroupAggregation.prototype.expand = function () {
+    for (var i = 0, iMax = this.metaNodes.length; i < iMax; i++) {
+        var members = this.metaNodes[i].members;
+        for (var j = 0, jMax = members.length; j < jMax; j++) {
+            members[j].aggregate = undefined;
+        }
+    }
+
+    this.collapsed = false;
+    this.valid = false;
+    this.expandStart = new Date().valueOf();
+    return this.moved;
+};
+
+/**
+ * Get the progress of the expansion
+ * @return {Number} progress   A number between 0 and 1, 1 when the
+ *                             expansion is finished
+ */
+links.Network.GroupAggregation.prototype.getExpansion = function () {
+    if (this.expandStart == undefined) {
+        return 1;
+    }
+    var progress = (new Date().valueOf() - this.expandStart) /
+        links.Network.GroupAggregation.EXPAND_DURATION;
+    if (progress >= 1) {
+        this.expandStart = undefined;
+        return 1;
+    }
+    return progress;
+};
+
+/**
+ * Check whether the groups are being expanded
+ * @return {boolean} expanding
+ */
+links.Network.GroupAggregation.prototype.isExpanding = function () {
+    return (this.expandStart != undefined);
+};
+
+/**
+ * Temporarily move the nodes of each group towards their meta-node, for
+ * drawing a step of the expansion. The positions must be restored via
+ * restore() after drawing.
+ * @param {Number} progress   Progress of the expansion between 0 and 1
+ */
+links.Network.GroupAggregation.prototype.interpolate = function (progress) {
+    var saved = this.saved;
+    var count = 0;
+    for (var i = 0, iMax = this.metaNodes.length; i < iMax; i++) {
+        var meta = this.metaNodes[i];
+        var members = meta.members;
+        for (var j = 0, jMax = members.length; j < jMax; j++) {
+            var node = members[j];
+            saved[count++] = node.x;
+            saved[count++] = node.y;
+            node.x = meta.x + (node.x - meta.x) * progress;
+            node.y = meta.y + (node.y - meta.y) * progress;
+        }
+    }
+    saved.length = count;
+};
+
+/**
+ * Restore the positions of the nodes after interpolate()
+ */
+links.Network.GroupAggregation.prototype.restore = function () {
+    var saved = this.saved;
+    var count = 0;
+    for (var i = 0, iMax = this.metaNodes.length; i < iMax; i++) {
+        var members = this.metaNodes[i].members;
+        for (var j = 0, jMax = members.length; j < jMax; j++) {
+            var node = members[j];
+            node.x = saved[count++];
+            node.y = saved[count++];
+        }
+    }
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class MultilevelLayout
+ * A hierarchy of coarsened versions of a network, used to find a good
+ * initial layout for large networks. Each coarser level is created by
+ * merging pairs of linked nodes (heavy edge matching). The coarsest level is
+ * laid out first, after which each finer level starts with its nodes placed
+ * around the position of the node they were merged into.
+ *
+ * The nodes and links of the coarse levels are plain objects with the
+ * properties needed by links.Network.Physics. The finest level contains the
+ * nodes and links of the network itself.
+ * @param {links.Network.Node[]} nodes
+ * @param {links.Network.Link[]} edges
+ * @param {function} random    Random number generator, like Math.random
+ */
+links.Network.MultilevelLayout = function (nodes, edges, random) {
+    this.random = random;
+
+    var finest = {
+        "nodes": nodes,
+        "links": [],
+        "weight": [],   // number of nodes of the network in each node
+        "parent": []    // index of the node in the next coarser level
+    };
+    for (var i = 0, iMax = nodes.length; i < iMax; i++) {
+        nodes[i].index = i;
+        finest.weight[i] = 1;
+    }
+    for (i = 0, iMax = edges.length; i < iMax; i++) {
+        var link = edges[i];
+        if (link.from && link.to && link.from !== link.to &&
+                nodes[link.from.index] === link.from &&
+                nodes[link.to.index] === link.to) {
+            finest.links.push(link);
+        }
+    }
+    this.levels = [finest];
+
+    // coarsen until the network is small, or hardly shrinks anymore
+    var level = finest;
+    while (level.nodes.length > links.Network.MultilevelLayout.MIN_NODES) {
+        var coarse = this._coarsen(level);
+        if (coarse.nodes.length > links.Network.MultilevelLayout.MIN_RATIO * level.nodes.length) {
+            break;
+        }
+        this.levels.push(coarse);
+        level = coarse;
+    }
+};
+
+/**
+ * The coarsening stops when a level has no more than this number of nodes
+ */
+links.Network.MultilevelLayout.MIN_NODES = 20;
+
+/**
+ * The coarsening stops when a level has more than this fraction of the
+ * nodes of the finer level
+ */
+links.Network.MultilevelLayout.MIN_RATIO = 0.8;
+
+/**
+ * Create a coarser level by merging each node with the unmerged neighbour
+ * with the heaviest link relative to the size of both nodes. Fixed nodes
+ * are not merged.
+ * @param {Object} level
+ * @return {Object} coarse
+ * @private
+ */
+links.Network.MultilevelLayout.prototype._coarsen = function (level) {
+    var nodes = level.nodes, edges = level.links, weight = level.weight;
+    var count = nodes.length;
+    var i, iMax, j, jMax, link;
+
+    // neighbours and link weights per node
+    var neighbours = [];
+    for (i = 0; i < count; i++) {
+        neighbours[i] = [];
+    }
+    for (i = 0, iMax = edges.length; i < iMax; i++) {
+        link = edges[i];
+        var w = (link.weight != undefined) ? link.weight : 1;
+        neighbours[link.from.index].push(link.to.index, w);
+        neighbours[link.to.index].push(link.from.index, w);
+    }
+
+    // visit the nodes in random order
+    var order = [];
+    for (i = 0; i < count; i++) {
+        order[i] = i;
+    }
+    for (i = count - 1; i > 0; i--) {
+        j = Math.floor(this.random() * (i + 1));
+        var swap = order[i];
+        order[i] = order[j];
+        order[j] = swap;
+    }
+
+    var parent = level.parent;
+    parent.length = count;
+    for (i = 0; i < count; i++) {
+        parent[i] = -1;
+    }
+    var coarse = {
+        "nodes": [],
+        "links": [],
+        "weight": [],
+        "parent": []
+    };
+    for (var o = 0; o < count; o++) {
+        i = order[o];
+        if (parent[i] != -1) {
+            continue;
+        }
+
+        var node = nodes[i];
+        var fixed = node.xFixed || node.yFixed;
+        var match = -1, best = 0;
+        if (!fixed) {
+            var list = neighbours[i];
+            for (j = 0, jMax = list.length; j < jMax; j += 2) {
+                var n = list[j];
+                var other = nodes[n];
+                if (parent[n] == -1 && n != i && !other.xFixed && !other.yFixed) {
+                    var score = list[j + 1] / (weight[i] + weight[n]);
+                    if (score > best) {
+                        best = score;
+                        match = n;
+                    }
+                }
+            }
+        }
+
+        var index = coarse.nodes.length;
+        parent[i] = index;
+        if (match != -1) {
+            parent[match] = index;
+        }
+        coarse.nodes.push({
+            "x": node.x,
+            "y": node.y,
+            "vx": 0,
+            "vy": 0,
+            "mass": 50,
+            "damping": node.damping,
+            "xFixed": node.xFixed,
+            "yFixed": node.yFixed,
+            "index": index
+        });
+        coarse.weight.push(weight[i] + (match != -1 ? weight[match] : 0));
+    }
+
+    // merge the links, links within a merged node are left out
+    var merged = {};
+    for (i = 0, iMax = edges.length; i < iMax; i++) {
+        link = edges[i];
+        var a = parent[link.from.index], b = parent[link.to.index];
+        if (a == b) {
+            continue;
+        }
+        var key = (a < b) ? a + "-" + b : b + "-" + a;
+        var coarseLink = merged[key];
+        if (coarseLink) {
+            coarseLink.weight += (link.weight != undefined) ? link.weight : 1;
+        }
+        else {
+            coarseLink = {
+                "from": coarse.nodes[a],
+                "to": coarse.nodes[b],
+                "weight": (link.weight != undefined) ? link.weight : 1
+            };
+            merged[key] = coarseLink;
+            coarse.links.push(coarseLink);
+        }
+    }
+
+    // heavier nodes, like the nodes of the network
+    for (i = 0, iMax = coarse.links.length; i < iMax; i++) {
+        coarse.links[i].from.mass += 20;
+        coarse.links[i].to.mass += 20;
+    }
+
+    return coarse;
+};
+
+/**
+ * Get the number of levels, including the network itself
+ * @return {Number} count
+ */
+links.Network.MultilevelLayout.prototype.getLevelCount = function () {
+    return this.levels.length;
+};
+
+/**
+ * Get a level. Level 0 is the network itself, the last level is the
+ * coarsest.
+ * @param {Number} index
+ * @return {Object} level   Object with arrays nodes, links, weight (number
+ *                          of nodes of the network in each node), and
+ *                          parent (index of each node in the next level)
+ */
+links.Network.MultilevelLayout.prototype.getLevel = function (index) {
+    return this.levels[index];
+};
+
+/**
+ * Set the length of the links of a coarse level. A node containing w nodes
+ * of the network covers an area with a diameter of about sqrt(w) times the
+ * link length, so the length between two nodes grows with their size.
+ * @param {Number} index     Index of the level, larger than 0
+ * @param {Number} length    The length of a link in the network
+ */
+links.Network.MultilevelLayout.prototype.setLinkLength = function (index, length) {
+    var level = this.levels[index];
+    for (var i = 0, iMax = level.links.length; i < iMax; i++) {
+        var link = level.links[i];
+        link.length = length * (Math.sqrt(level.weight[link.from.index]) +
+            Math.sqrt(level.weight[link.to.index])) / 2;
+        link.stiffness = 1 / link.length;
+    }
+};
+
+/**
+ * Place the nodes of a level around the position of the node they have been
+ * merged into in the next coarser level. Fixed nodes keep their position.
+ * @param {Number} index     Index of the level, smaller than the coarsest
+ * @param {Number} length    The length of a link in the network
+ */
+links.Network.MultilevelLayout.prototype.interpolate = function (index, length) {
+    var level = this.levels[index];
+    var coarse = this.levels[index + 1];
+    for (var i = 0, iMax = level.nodes.length; i < iMax; i++) {
+        var node = level.nodes[i];
+        var parent = coarse.nodes[level.parent[i]];
+        var radius = length * Math.sqrt(level.weight[i]) / 2;
+        var angle = 2 * Math.PI * this.random();
+        if (!node.xFixed) {
+            node.x = parent.x + radius * Math.cos(angle);
+        }
+        if (!node.yFixed) {
+            node.y = parent.y + radius * Math.sin(angle);
+        }
+        node.vx = 0;
+        node.vy = 0;
+    }
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class PackageStream
+ * A ring buffer with the packages added via streamPackages. The package
+ * objects are kept when a package is finished, and are reused for new
+ * packages. When the buffer is full, the oldest package is dropped.
+ * @param {Number} capacity   The maximum number of packages
+ */
+links.Network.PackageStream = function (capacity) {
+    this.packages = [];  // package objects, in use and unused
+    this.capacity = 0;   // maximum number of packages
+    this.first = 0;      // index of the oldest package
+    this.count = 0;      // number of packages in use
+    this.dropped = 0;    // number of packages dropped because the buffer was full
+    this.valueMin = undefined;
+    this.valueMax = undefined;
+    this.setCapacity(capacity);
+};
+
+/**
+ * Set the maximum number of packages. When the number of packages exceeds
+ * the new capacity, the oldest packages are dropped.
+ * @param {Number} capacity
+ */
+links.Network.PackageStream.prototype.setCapacity = function (capacity) {
+    capacity = Math.max(capacity, 1);
+
+    // move the packages in use to the start of the array, oldest first
+    var packages = [];
+    var count = Math.min(this.count, capacity);
+    var drop = this.count - count;
+    for (var i = 0; i < count; i++) {
+        packages.push(this.get(drop + i));
+    }
+    for (i = 0; i < this.packages.length && packages.length < capacity; i++) {
+        if (!this._isInUse(i)) {
+            packages.push(this.packages[i]);
+        }
+    }
+
+    this.packages = packages;
+    this.capacity = capacity;
+    this.first = 0;
+    this.count = count;
+    this.dropped += drop;
+};
+
+/**
+ * Check whether a slot of the buffer contains a package in use
+ * @param {Number} slot
+ * @return {boolean}
+ * @private
+ */
+links.Network.PackageStream.prototype._isInUse = function (slot) {
+    return ((slot - this.first + this.capacity) % this.capacity) < this.count;
+};
+
+/**
+ * Get a package
+ * @param {Number} index    Index of the package, 0 is the oldest package
+ * @return {links.Network.Package} package
+ */
+links.Network.PackageStream.prototype.get = function (index) {
+    return this.packages[(this.first + index) % this.capacity];
+};
+
+/**
+ * Add a package. When the buffer is full, the oldest package is dropped.
+ * @param {Object} properties             The properties of the package
+ * @param {links.Network} network
+ * @param {links.Network.Images} images
+ * @param {Object} constants
+ * @return {links.Network.Package} package  The package object, which may
+ *                                          be reused from a finished or
+ *                                          dropped package
+ */
+links.Network.PackageStream.prototype.push = function (properties, network, images, constants) {
+    if (this.count == this.capacity) {
+        this.first = (this.first + 1) % this.capacity;
+        this.count--;
+        this.dropped++;
+    }
+
+    var slot = (this.first + this.count) % this.capacity;
+    var p = this.packages[slot];
+    if (p) {
+        p.init(properties, constants);
+    }
+    else {
+        p = new links.Network.Package(properties, network, images, constants);
+        this.packages[slot] = p;
+    }
+    this.count++;
+
+    // adjust the size to the range of the values seen so far
+    var value = p.getValue();
+    if (value !== undefined) {
+        this.valueMin = (this.valueMin === undefined) ? value : Math.min(value, this.valueMin);
+        this.valueMax = (this.valueMax === undefined) ? value : Math.max(value, this.valueMax);
+        p.setValueRange(this.valueMin, this.valueMax);
+    }
+
+    return p;
+};
+
+/**
+ * Perform one discrete step for all packages
+ * @param {number} interval    Time interval in seconds
+ */
+links.Network.PackageStream.prototype.discreteStep = function (interval) {
+    for (var i = 0, iMax = this.count; i < iMax; i++) {
+        this.get(i).discreteStep(interval);
+    }
+};
+
+/**
+ * Remove the finished packages. The order of the remaining packages is kept,
+ * and the package objects of the finished packages are kept for reuse.
+ */
+links.Network.PackageStream.prototype.deleteFinished = function () {
+    var packages = this.packages,
+        capacity = this.capacity,
+        count = 0;
+    for (var i = 0, iMax = this.count; i < iMax; i++) {
+        var slot = (this.first + i) % capacity;
+        if (!packages[slot].isFinished()) {
+            // swap the package to the first free slot
+            var target = (this.first + count) % capacity;
+            var p = packages[target];
+            packages[target] = packages[slot];
+            packages[slot] = p;
+            count++;
+        }
+    }
+    this.count = count;
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class Groups
+ * This class can store groups and properties specific for groups.
+ */
+links.Network.Groups = function () {
+    this.clear();
+    this.defaultIndex = 0;
+};
+
+
+/**
+ * default constants for group colors
+ */
+links.Network.Groups.DEFAULT = [
+    {"borderColor": "#2B7CE9", "backgroundColor": "#97C2FC", "highlightColor": "#D2E5FF"}, // blue
+    {"borderColor": "#FFA500", "backgroundColor": "#FFFF00", "highlightColor": "#FFFFA3"}, // yellow
+    {"borderColor": "#FA0A10", "backgroundColor": "#FB7E81", "highlightColor": "#FFAFB1"}, // red
+    {"borderColor": "#41A906", "backgroundColor": "#7BE141", "highlightColor": "#A1EC76"}, // green
+    {"borderColor": "#E129F0", "backgroundColor": "#EB7DF4", "highlightColor": "#F0B3F5"}, // magenta
+    {"borderColor": "#7C29F0", "backgroundColor": "#AD85E4", "highlightColor": "#D3BDF0"}, // purple
+    {"borderColor": "#C37F00", "backgroundColor": "#FFA807", "highlightColor": "#FFCA66"}, // orange
+    {"borderColor": "#4220FB", "backgroundColor": "#6E6EFD", "highlightColor": "#9B9BFD"}, // darkblue
+    {"borderColor": "#FD5A77", "backgroundColor": "#FFC0CB", "highlightColor": "#FFD1D9"}, // pink
+    {"borderColor": "#4AD63A", "backgroundColor": "#C2FABC", "highlightColor": "#E6FFE3"}  // mint
+];
+
+
+/**
+ * Clear all groups
+ */
+links.Network.Groups.prototype.clear = function () {
+    this.groups = {};
+    this.groups.length = function()
+    {
+        var i = 0;
+        for ( var p in this ) {
+            if (this.hasOwnProperty(p)) {
+                i++;
+            }
+        }
+        return i;
+    }
+};
+
+
+/**
  * get group properties of a groupname. If groupname is not found, a new group
  * is added.
  * @param {*} groupname        Can be a number, string, Date, etc.
@@ -4794,6 +6611,37 @@ links.Network.Groups.prototype.add = function (groupname, style) {
     return style;
 };
 
+/**
+ * Create a random number generator with a seed. The generator returns the
+ * same sequence of numbers for the same seed (mulberry32).
+ * @param {Number} seed
+ * @return {function} random   A function returning a number in [0, 1)
+ *                             on every call, like Math.random
+ */
+links.Network.createRandom = function (seed) {
+    var state = seed >>> 0;
+    return function () {
+        state = (state + 0x6D2B79F5) >>> 0;
+        var t = state;
+        t = links.Network.imul(t ^ (t >>> 15), t | 1);
+        t ^= t + links.Network.imul(t ^ (t >>> 7), t | 61);
+        return ((t ^ (t >>> 14)) >>> 0) / 4294967296;
+    };
+};
+
+/**
+ * Multiply two 32 bit integers, like Math.imul, which is not available in
+ * older browsers
+ * @param {Number} a
+ * @param {Number} b
+ * @return {Number} product   32 bit integer
+ */
+links.Network.imul = Math.imul || function (a, b) {
+    var aHi = (a >>> 16) & 0xffff, aLo = a & 0xffff;
+    var bHi = (b >>> 16) & 0xffff, bLo = b & 0xffff;
+    return ((aLo * bLo) + (((aHi * bLo + aLo * bHi) << 16) >>> 0) | 0);
+};
+
 /**
  * Check if given object is a Javascript Array
  * @param {*} obj
@@ -4809,6 +6657,1582 @@ links.Network.isArray = function (obj) {
 
 
 
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class SpriteCache
+ * This class keeps rendered nodes on offscreen canvases, so nodes with the
+ * same style and label are rendered once, and copied onto the canvas when
+ * drawing the network. The least recently used sprites are removed when the
+ * total size of the sprites exceeds a maximum number of pixels.
+ * @param {Number} maxPixels   Maximum total size of the sprites in pixels.
+ *                             Nothing is cached when 0.
+ */
+links.Network.SpriteCache = function (maxPixels) {
+    this.maxPixels = maxPixels;
+    this.clear();
+};
+
+/**
+ * Get the resolution of the sprites for a scale. The resolution is rounded
+ * up to a power of two, so the sprites can be reused while zooming.
+ * @param {Number} scale
+ * @return {Number} resolution
+ */
+links.Network.SpriteCache.getResolution = function (scale) {
+    var resolution = Math.pow(2, Math.ceil(Math.log(scale) / Math.LN2));
+    return Math.min(Math.max(resolution, 0.125), 8);
+};
+
+/**
+ * Remove all sprites
+ */
+links.Network.SpriteCache.prototype.clear = function () {
+    this.sprites = {};   // map with the sprites by key
+    this.first = null;   // most recently used sprite
+    this.last = null;    // least recently used sprite
+    this.pixels = 0;     // total size of the sprites
+};
+
+/**
+ * Set the maximum total size of the sprites
+ * @param {Number} maxPixels   Maximum size in pixels. Nothing is cached when 0.
+ */
+links.Network.SpriteCache.prototype.setMaxPixels = function (maxPixels) {
+    this.maxPixels = maxPixels;
+    this._evict();
+};
+
+/**
+ * Draw a node via its sprite. The sprite is rendered when not yet cached.
+ * The size of the node must be calculated.
+ * @param {CanvasRenderingContext2D}   ctx
+ * @param {links.Network.Node} node
+ * @param {Number} resolution   Number of pixels per unit of the canvas
+ * @return {boolean} drawn      False when the node cannot be cached, and
+ *                              must be drawn directly
+ */
+links.Network.SpriteCache.prototype.drawNode = function (ctx, node, resolution) {
+    if (!this.maxPixels) {
+        return false;
+    }
+
+    var key = [node.style, node.width, node.height, node.radius, node.selected,
+        node.borderColor, node.backgroundColor, node.highlightColor,
+        node.fontColor, node.fontSize, node.fontFace,
+        node.textHidden ? '' : node.text, resolution].join('|');
+
+    var sprite = this.sprites[key];
+    if (sprite) {
+        this._remove(sprite);
+    }
+    else {
+        sprite = this._render(node, resolution);
+        if (sprite.pixels > this.maxPixels) {
+            return false;
+        }
+        sprite.key = key;
+        this.sprites[key] = sprite;
+        this.pixels += sprite.pixels;
+    }
+    this._add(sprite);
+    this._evict();
+
+    node.left = node.x - node.width / 2;
+    node.top = node.y - node.height / 2;
+    ctx.drawImage(sprite.canvas, node.x + sprite.left, node.y + sprite.top,
+        sprite.width, sprite.height);
+    return true;
+};
+
+/**
+ * Render a node on a new offscreen canvas
+ * @param {links.Network.Node} node
+ * @param {Number} resolution   Number of pixels per unit of the canvas
+ * @return {Object} sprite      Object with the canvas, the position of the
+ *                              canvas relative to the node (left, top),
+ *                              its size, and the number of pixels
+ * @private
+ */
+links.Network.SpriteCache.prototype._render = function (node, resolution) {
+    var canvas = document.createElement('canvas');
+    var ctx = canvas.getContext('2d');
+
+    // the area of the node, plus the label drawn below shapes
+    var margin = 2; // the line width of the border
+    var width = node.width;
+    var height = node.height;
+    var textHeight = 0;
+    if (node.draw == node._drawDot || node.draw == node._drawSquare ||
+            node.draw == node._drawTriangle || node.draw == node._drawTriangleDown ||
+            node.draw == node._drawStar) {
+        var textSize = node.textHidden ? {"width": 0, "height": 0} : node.getTextSize(ctx);
+        width = Math.max(width, textSize.width);
+        textHeight = textSize.height;
+    }
+
+    var sprite = {
+        "canvas": canvas,
+        "left": -width / 2 - margin,
+        "top": -height / 2 - margin,
+        "width": width + 2 * margin,
+        "height": height + textHeight + 2 * margin
+    };
+    canvas.width = Math.ceil(sprite.width * resolution);
+    canvas.height = Math.ceil(sprite.height * resolution);
+    sprite.pixels = canvas.width * canvas.height;
+
+    ctx.scale(resolution, resolution);
+    ctx.translate(-node.x - sprite.left, -node.y - sprite.top);
+    node.draw(ctx);
+
+    return sprite;
+};
+
+/**
+ * Add a sprite as most recently used sprite
+ * @param {Object} sprite
+ * @private
+ */
+links.Network.SpriteCache.prototype._add = function (sprite) {
+    sprite.previous = null;
+    sprite.next = this.first;
+    if (this.first) {
+        this.first.previous = sprite;
+    }
+    this.first = sprite;
+    if (!this.last) {
+        this.last = sprite;
+    }
+};
+
+/**
+ * Remove a sprite from the list with recently used sprites
+ * @param {Object} sprite
+ * @private
+ */
+links.Network.SpriteCache.prototype._remove = function (sprite) {
+    if (sprite.previous) {
+        sprite.previous.next = sprite.next;
+    }
+    else {
+        this.first = sprite.next;
+    }
+    if (sprite.next) {
+        sprite.next.previous = sprite.previous;
+    }
+    else {
+        this.last = sprite.previous;
+    }
+    sprite.previous = null;
+    sprite.next = null;
+};
+
+/**
+ * Remove the least recently used sprites until the total size is below the
+ * maximum
+ * @private
+ */
+links.Network.SpriteCache.prototype._evict = function () {
+    while (this.last && this.pixels > this.maxPixels) {
+        var sprite = this.last;
+        this._remove(sprite);
+        delete this.sprites[sprite.key];
+        this.pixels -= sprite.pixels;
+    }
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class HitIndex
+ * A spatial index on the nodes and links of a network, to find the nodes
+ * and links at the location of the mouse without checking all of them.
+ * The centers of the nodes are stored in a quadtree, and each link is
+ * divided in pieces of which the centers are stored in a second quadtree.
+ * The index must be rebuilt when the nodes have been moved or resized, or
+ * when nodes or links have been added or removed. Panning and zooming do not
+ * change the index.
+ */
+links.Network.HitIndex = function () {
+    this.nodeTree = new links.Network.QuadTree();
+    this.nodeCount = 0;
+    this.nodeX = links.Network.createFloatArray(0);
+    this.nodeY = links.Network.createFloatArray(0);
+
+    this.linkTree = new links.Network.QuadTree();
+    this.linkCount = 0;
+    this.linkX = links.Network.createFloatArray(0);
+    this.linkY = links.Network.createFloatArray(0);
+    this.linkIndex = links.Network.createIntArray(0); // index of the link of each piece
+
+    this.nodes = [];
+    this.links = [];
+    this.valid = false;
+};
+
+/**
+ * The maximum distance in pixels of a location to a link to be on the link,
+ * see links.Network.Link.isOverlappingWith
+ */
+links.Network.HitIndex.LINK_DISTANCE = 10;
+
+/**
+ * Mark the index as outdated
+ */
+links.Network.HitIndex.prototype.invalidate = function () {
+    this.valid = false;
+};
+
+/**
+ * Check whether the index is up to date
+ * @return {boolean} valid
+ */
+links.Network.HitIndex.prototype.isValid = function () {
+    return this.valid;
+};
+
+/**
+ * Build the index
+ * @param {links.Network.Node[]} nodes
+ * @param {links.Network.Link[]} edges
+ * @param {Number} pieceLength   Maximum length of the pieces of a link
+ */
+links.Network.HitIndex.prototype.build = function (nodes, edges, pieceLength) {
+    var i, iMax;
+
+    // nodes
+    var count = nodes.length;
+    if (this.nodeX.length < count) {
+        this.nodeX = links.Network.createFloatArray(2 * count);
+        this.nodeY = links.Network.createFloatArray(2 * count);
+    }
+    var extentX = 0,
+        extentY = 0;
+    for (i = 0; i < count; i++) {
+        // a node is drawn around its center. The size of a node is known
+        // once it has been drawn
+        var node = nodes[i];
+        this.nodeX[i] = node.x;
+        this.nodeY[i] = node.y;
+        if (node.width) {
+            extentX = Math.max(extentX, node.width / 2);
+            extentY = Math.max(extentY, node.height / 2);
+        }
+    }
+    this.nodeCount = count;
+    this.nodeExtentX = extentX;
+    this.nodeExtentY = extentY;
+    this.nodeTree.build(this.nodeX, this.nodeY, count);
+
+    // links, divided in pieces
+    var pieces = 0;
+    var length = Math.max(pieceLength, 1);
+    for (i = 0, iMax = edges.length; i < iMax; i++) {
+        var link = edges[i];
+        var dx = link.to.x - link.from.x,
+            dy = link.to.y - link.from.y,
+            n = Math.max(Math.ceil(Math.sqrt(dx * dx + dy * dy) / length), 1);
+
+        if (this.linkX.length < pieces + n) {
+            this._growLinks(2 * (pieces + n));
+        }
+        for (var j = 0; j < n; j++) {
+            var f = (j + 0.5) / n;
+            this.linkX[pieces] = link.from.x + f * dx;
+            this.linkY[pieces] = link.from.y + f * dy;
+            this.linkIndex[pieces] = i;
+            pieces++;
+        }
+    }
+    this.linkCount = pieces;
+    this.linkExtent = length / 2 + links.Network.HitIndex.LINK_DISTANCE;
+    this.linkTree.build(this.linkX, this.linkY, pieces);
+
+    this.nodes = nodes;
+    this.links = edges;
+    this.valid = true;
+};
+
+/**
+ * Increase the number of link pieces which can be stored
+ * @param {Number} capacity
+ * @private
+ */
+links.Network.HitIndex.prototype._growLinks = function (capacity) {
+    var linkX = links.Network.createFloatArray(capacity),
+        linkY = links.Network.createFloatArray(capacity),
+        linkIndex = links.Network.createIntArray(capacity);
+    for (var i = 0, iMax = this.linkX.length; i < iMax; i++) {
+        linkX[i] = this.linkX[i];
+        linkY[i] = this.linkY[i];
+        linkIndex[i] = this.linkIndex[i];
+    }
+    this.linkX = linkX;
+    this.linkY = linkY;
+    this.linkIndex = linkIndex;
+};
+
+/**
+ * Find the nodes overlapping with given area
+ * @param {Object} obj     An object with parameters left, top, right, bottom
+ * @return {Number[]}      The indexes of the nodes, in ascending order
+ */
+links.Network.HitIndex.prototype.getNodes = function (obj) {
+    var candidates = [];
+    this.nodeTree.query(this.nodeX, this.nodeY,
+        obj.left - this.nodeExtentX, obj.top - this.nodeExtentY,
+        obj.right + this.nodeExtentX, obj.bottom + this.nodeExtentY, candidates);
+    candidates.sort(function (a, b) {
+        return a - b;
+    });
+
+    var result = [];
+    for (var i = 0, iMax = candidates.length; i < iMax; i++) {
+        // nodes removed since the index was built are skipped, and nodes
+        // collapsed into a meta-node are not visible
+        var node = this.nodes[candidates[i]];
+        if (node && !node.aggregate && node.isOverlappingWith(obj)) {
+            result.push(candidates[i]);
+        }
+    }
+    return result;
+};
+
+/**
+ * Find the links overlapping with given location
+ * @param {Object} obj     An object with parameters left, top
+ * @return {Number[]}      The indexes of the links, in ascending order
+ */
+links.Network.HitIndex.prototype.getLinks = function (obj) {
+    var pieces = [];
+    this.linkTree.query(this.linkX, this.linkY,
+        obj.left - this.linkExtent, obj.top - this.linkExtent,
+        obj.left + this.linkExtent, obj.top + this.linkExtent, pieces);
+
+    var candidates = [];
+    for (var i = 0, iMax = pieces.length; i < iMax; i++) {
+        candidates.push(this.linkIndex[pieces[i]]);
+    }
+    candidates.sort(function (a, b) {
+        return a - b;
+    });
+
+    var result = [];
+    for (i = 0, iMax = candidates.length; i < iMax; i++) {
+        var index = candidates[i];
+        var link = this.links[index];
+        if (link && index !== candidates[i - 1] &&
+                !link.from.aggregate && !link.to.aggregate &&
+                link.isOverlappingWith(obj)) {
+            result.push(index);
+        }
+    }
+    return result;
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class Physics
+ *
+ * The state of the force simulation of the nodes. The positions, velocities,
+ * forces, and masses of the nodes are stored in typed arrays indexed by the
+ * slot of the node, and the links in arrays with the slots of their nodes.
+ * This allows to calculate the forces and to move the nodes in tight loops
+ * without allocating objects.
+ *
+ * The nodes remain the owners of their position: load() copies the state of
+ * the nodes and links into the arrays, and store() writes the new positions
+ * back into the nodes after simulating one or multiple steps.
+ */
+links.Network.Physics = function () {
+    this.capacity = 0;      // number of node slots allocated
+    this.count = 0;         // number of nodes loaded
+    this.linkCapacity = 0;  // number of link slots allocated
+    this.linkCount = 0;     // number of links loaded
+
+    this.tree = new links.Network.QuadTree();
+    this.cellCapacity = 0;
+};
+
+/**
+ * Create an array with floating point numbers, initialized with zeros.
+ * A Float64Array is used when supported by the browser.
+ * @param {Number} length
+ * @return {Float64Array | Number[]} array
+ */
+links.Network.createFloatArray = function (length) {
+    if (typeof Float64Array !== 'undefined') {
+        return new Float64Array(length);
+    }
+    var array = new Array(length);
+    for (var i = 0; i < length; i++) {
+        array[i] = 0;
+    }
+    return array;
+};
+
+/**
+ * Create an array with integer numbers, initialized with zeros.
+ * An Int32Array is used when supported by the browser.
+ * @param {Number} length
+ * @return {Int32Array | Number[]} array
+ */
+links.Network.createIntArray = function (length) {
+    if (typeof Int32Array !== 'undefined') {
+        return new Int32Array(length);
+    }
+    var array = new Array(length);
+    for (var i = 0; i < length; i++) {
+        array[i] = 0;
+    }
+    return array;
+};
+
+/**
+ * Copy the state of the nodes and links into the arrays. The slot of each
+ * node is stored in its field index.
+ * @param {links.Network.Node[]} nodes
+ * @param {links.Network.Link[]} edges   The links between the nodes
+ */
+links.Network.Physics.prototype.load = function (nodes, edges) {
+    var n, l;
+
+    // note: the arrays are detached (have length zero) while transferred
+    // to a worker
+    if (nodes.length > this.capacity || !this.x || this.x.length != this.capacity) {
+        var capacity = Math.max(nodes.length, 2 * this.capacity);
+        this.x = links.Network.createFloatArray(capacity);
+        this.y = links.Network.createFloatArray(capacity);
+        this.vx = links.Network.createFloatArray(capacity);
+        this.vy = links.Network.createFloatArray(capacity);
+        this.fx = links.Network.createFloatArray(capacity);
+        this.fy = links.Network.createFloatArray(capacity);
+        this.mass = links.Network.createFloatArray(capacity);
+        this.damping = links.Network.createFloatArray(capacity);
+        this.xFixed = links.Network.createIntArray(capacity);
+        this.yFixed = links.Network.createIntArray(capacity);
+        this.capacity = capacity;
+    }
+
+    var x = this.x, y = this.y, vx = this.vx, vy = this.vy,
+        mass = this.mass, damping = this.damping,
+        xFixed = this.xFixed, yFixed = this.yFixed;
+    for (n = 0; n < nodes.length; n++) {
+        var node = nodes[n];
+        node.index = n;
+        x[n] = node.x;
+        y[n] = node.y;
+        vx[n] = node.vx;
+        vy[n] = node.vy;
+        mass[n] = node.mass;
+        damping[n] = node.damping;
+        xFixed[n] = node.xFixed ? 1 : 0;
+        yFixed[n] = node.yFixed ? 1 : 0;
+    }
+    this.count = nodes.length;
+
+    if (edges.length > this.linkCapacity || !this.from || this.from.length != this.linkCapacity) {
+        var linkCapacity = Math.max(edges.length, 2 * this.linkCapacity);
+        this.from = links.Network.createIntArray(linkCapacity);
+        this.to = links.Network.createIntArray(linkCapacity);
+        this.length = links.Network.createFloatArray(linkCapacity);
+        this.stiffness = links.Network.createFloatArray(linkCapacity);
+        this.linkCapacity = linkCapacity;
+    }
+
+    var count = 0;
+    for (l = 0; l < edges.length; l++) {
+        var link = edges[l];
+        if (link.from && link.to &&
+                nodes[link.from.index] === link.from &&
+                nodes[link.to.index] === link.to) {
+            this.from[count] = link.from.index;
+            this.to[count] = link.to.index;
+            this.length[count] = link.length;
+            this.stiffness[count] = link.stiffness;
+            count++;
+        }
+    }
+    this.linkCount = count;
+};
+
+/**
+ * Pin a node at its current position, it will not be moved by the
+ * simulation
+ * @param {Number} index   Slot of the node
+ */
+links.Network.Physics.prototype.pin = function (index) {
+    this.xFixed[index] = 1;
+    this.yFixed[index] = 1;
+    this.vx[index] = 0;
+    this.vy[index] = 0;
+};
+
+/**
+ * Write the positions, velocities, and forces from the arrays back into the
+ * nodes. The nodes must be the same as provided to load(). The position of
+ * nodes which have been fixed in the meantime, for example because the user
+ * is dragging them, is left unchanged.
+ * @param {links.Network.Node[]} nodes
+ */
+links.Network.Physics.prototype.store = function (nodes) {
+    var x = this.x, y = this.y, vx = this.vx, vy = this.vy,
+        fx = this.fx, fy = this.fy;
+    for (var n = 0, nMax = this.count; n < nMax; n++) {
+        var node = nodes[n];
+        if (!node.xFixed) {
+            node.x = x[n];
+        }
+        if (!node.yFixed) {
+            node.y = y[n];
+        }
+        node.vx = vx[n];
+        node.vy = vy[n];
+        node.fx = fx[n];
+        node.fy = fy[n];
+    }
+};
+
+/**
+ * Get the arrays and counts of the simulation, for example to send them to
+ * a worker.
+ * @return {Object} state
+ */
+links.Network.Physics.prototype.getState = function () {
+    return {
+        'count': this.count,
+        'linkCount': this.linkCount,
+        'x': this.x,
+        'y': this.y,
+        'vx': this.vx,
+        'vy': this.vy,
+        'fx': this.fx,
+        'fy': this.fy,
+        'mass': this.mass,
+        'damping': this.damping,
+        'xFixed': this.xFixed,
+        'yFixed': this.yFixed,
+        'from': this.from,
+        'to': this.to,
+        'length': this.length,
+        'stiffness': this.stiffness
+    };
+};
+
+/**
+ * Replace the arrays and counts of the simulation
+ * @param {Object} state   An object created by getState()
+ */
+links.Network.Physics.prototype.setState = function (state) {
+    this.count = state.count;
+    this.linkCount = state.linkCount;
+    this.x = state.x;
+    this.y = state.y;
+    this.vx = state.vx;
+    this.vy = state.vy;
+    this.fx = state.fx;
+    this.fy = state.fy;
+    this.mass = state.mass;
+    this.damping = state.damping;
+    this.xFixed = state.xFixed;
+    this.yFixed = state.yFixed;
+    this.from = state.from;
+    this.to = state.to;
+    this.length = state.length;
+    this.stiffness = state.stiffness;
+    this.capacity = state.x.length;
+    this.linkCapacity = state.from.length;
+};
+
+/**
+ * Calculate the external forces acting on the nodes
+ * Forces are caused by: links, repulsing forces between nodes, gravity
+ * @param {Number} gx               Horizontal center of gravity
+ * @param {Number} gy               Vertical center of gravity
+ * @param {Number} minimumDistance  Distance between nodes where the repulsing
+ *                                  force is halved
+ * @param {String} solver           Solver for the repulsing forces:
+ *                                  "pairwise", "grid", or "barneshut"
+ */
+links.Network.Physics.prototype.calculateForces = function (gx, gy, minimumDistance, solver) {
+    var x = this.x, y = this.y, fx = this.fx, fy = this.fy,
+        count = this.count,
+        n, dx, dy, distance;
+
+    // gravity, add a small constant force to pull the nodes towards the center of
+    // the graph
+    // Also, the forces are reset to zero in this loop
+    var gravity = 0.01;
+    for (n = 0; n < count; n++) {
+        dx = gx - x[n];
+        dy = gy - y[n];
+        distance = Math.sqrt(dx * dx + dy * dy);
+        if (distance > 0) {
+            fx[n] = dx / distance * gravity;
+            fy[n] = dy / distance * gravity;
+        }
+        else {
+            fx[n] = gravity;
+            fy[n] = 0;
+        }
+    }
+
+    // repulsing forces between nodes
+    switch (solver) {
+        case "grid":
+            this._repulseGrid(minimumDistance);
+            break;
+
+        case "barneshut":
+            this._repulseBarnesHut(minimumDistance);
+            break;
+
+        default:
+            this._repulsePairwise(minimumDistance);
+            break;
+    }
+
+    // forces caused by the links, modelled as springs
+    var from = this.from, to = this.to,
+        linkLength = this.length, stiffness = this.stiffness;
+    for (var l = 0, lMax = this.linkCount; l < lMax; l++) {
+        var a = from[l],
+            b = to[l];
+        dx = x[b] - x[a];
+        dy = y[b] - y[a];
+        var length = Math.sqrt(dx * dx + dy * dy),
+            springforce = stiffness[l] * (linkLength[l] - length),
+            sfx = (length > 0) ? dx / length * springforce : springforce,
+            sfy = (length > 0) ? dy / length * springforce : 0;
+
+        fx[a] -= sfx;
+        fy[a] -= sfy;
+        fx[b] += sfx;
+        fy[b] += sfy;
+    }
+};
+
+/**
+ * Apply the repulsing force between two nodes
+ * @param {Number} a                 Slot of the first node
+ * @param {Number} b                 Slot of the second node
+ * @param {Number} minimumDistance
+ * @private
+ */
+links.Network.Physics.prototype._repulse = function (a, b, minimumDistance) {
+    var steepness = 10; // higher value gives steeper slope of the force around the given minimumDistance
+
+    var dx = this.x[b] - this.x[a],
+        dy = this.y[b] - this.y[a],
+        distance = Math.sqrt(dx * dx + dy * dy),
+        repulsingforce = 1 / (1 + Math.exp((distance / minimumDistance - 1) * steepness)),
+        fx, fy;
+
+    if (distance > 0) {
+        fx = dx / distance * repulsingforce;
+        fy = dy / distance * repulsingforce;
+    }
+    else {
+        // push nodes at the same position apart in opposite directions
+        fx = (a < b) ? repulsingforce : -repulsingforce;
+        fy = 0;
+    }
+
+    this.fx[a] -= fx;
+    this.fy[a] -= fy;
+    this.fx[b] += fx;
+    this.fy[b] += fy;
+};
+
+/**
+ * Calculate the repulsing forces between all pairs of nodes. The costs are
+ * quadratic in the number of nodes.
+ * @param {Number} minimumDistance
+ * @private
+ */
+links.Network.Physics.prototype._repulsePairwise = function (minimumDistance) {
+    var x = this.x, y = this.y, fx = this.fx, fy = this.fy,
+        steepness = 10; // higher value gives steeper slope of the force around the given minimumDistance
+
+    for (var a = 0, count = this.count; a < count; a++) {
+        var xa = x[a],
+            ya = y[a],
+            sfx = 0,
+            sfy = 0;
+
+        for (var b = a + 1; b < count; b++) {
+            var dx = x[b] - xa,
+                dy = y[b] - ya,
+                distance = Math.sqrt(dx * dx + dy * dy),
+                repulsingforce = 1 / (1 + Math.exp((distance / minimumDistance - 1) * steepness)),
+                rfx = (distance > 0) ? dx / distance * repulsingforce : repulsingforce,
+                rfy = (distance > 0) ? dy / distance * repulsingforce : 0;
+
+            sfx -= rfx;
+            sfy -= rfy;
+            fx[b] += rfx;
+            fy[b] += rfy;
+        }
+
+        fx[a] += sfx;
+        fy[a] += sfy;
+    }
+};
+
+/**
+ * Calculate the repulsing forces between nodes using a uniform grid.
+ * The repulsing force vanishes beyond a few times the minimum distance
+ * between nodes. The nodes are sorted into a grid with cells of at least this
+ * cut-off distance, and only pairs of nodes in neighbouring cells are
+ * evaluated. The costs are linear in the number of nodes, as long as the
+ * nodes are spread out.
+ * @param {Number} minimumDistance
+ * @private
+ */
+links.Network.Physics.prototype._repulseGrid = function (minimumDistance) {
+    var x = this.x, y = this.y,
+        count = this.count,
+        cutoff = minimumDistance * links.Network.Physics.CUTOFF,
+        n;
+
+    if (count == 0) {
+        return;
+    }
+
+    var left = Infinity, top = Infinity, right = -Infinity, bottom = -Infinity;
+    for (n = 0; n < count; n++) {
+        left = Math.min(left, x[n]);
+        top = Math.min(top, y[n]);
+        right = Math.max(right, x[n]);
+        bottom = Math.max(bottom, y[n]);
+    }
+
+    // use larger cells when the nodes are spread out over a large area, to
+    // limit the number of cells to a few per node
+    var width = right - left,
+        height = bottom - top,
+        cellSize = Math.max(cutoff, Math.sqrt(width * height / (4 * count)), (width + height) / (4 * count)),
+        cols = Math.floor(width / cellSize) + 1,
+        rows = Math.floor(height / cellSize) + 1,
+        cells = cols * rows;
+
+    if (cells + 1 > this.cellCapacity || count > this.cellOrder.length) {
+        this.cellCapacity = Math.max(cells + 1, 2 * this.cellCapacity);
+        this.cellStart = links.Network.createIntArray(this.cellCapacity);
+        this.cellOrder = links.Network.createIntArray(this.capacity);
+        this.cellIndex = links.Network.createIntArray(this.capacity);
+    }
+    var cellStart = this.cellStart,
+        cellOrder = this.cellOrder,
+        cellIndex = this.cellIndex,
+        c;
+
+    // sort the nodes by cell (counting sort)
+    for (c = 0; c <= cells; c++) {
+        cellStart[c] = 0;
+    }
+    for (n = 0; n < count; n++) {
+        c = Math.floor((x[n] - left) / cellSize) +
+            Math.floor((y[n] - top) / cellSize) * cols;
+        cellIndex[n] = c;
+        cellStart[c + 1]++;
+    }
+    for (c = 0; c < cells; c++) {
+        cellStart[c + 1] += cellStart[c];
+    }
+    for (n = 0; n < count; n++) {
+        c = cellIndex[n];
+        cellOrder[cellStart[c]] = n;
+        cellStart[c]++;
+    }
+    // cellStart now contains the end of each cell, shift it back
+    for (c = cells; c > 0; c--) {
+        cellStart[c] = cellStart[c - 1];
+    }
+    cellStart[0] = 0;
+
+    // evaluate each pair of neighbouring cells once: the cell itself, and
+    // the neighbours at the right and below
+    for (var row = 0; row < rows; row++) {
+        for (var col = 0; col < cols; col++) {
+            c = col + row * cols;
+            var start = cellStart[c],
+                end = cellStart[c + 1];
+            if (start == end) {
+                continue;
+            }
+
+            for (var i = start; i < end; i++) {
+                for (var j = i + 1; j < end; j++) {
+                    this._repulse(cellOrder[i], cellOrder[j], minimumDistance);
+                }
+            }
+
+            if (col + 1 < cols) {
+                this._repulseCells(c, c + 1, cutoff, minimumDistance);
+            }
+            if (row + 1 < rows) {
+                if (col > 0) {
+                    this._repulseCells(c, c + cols - 1, cutoff, minimumDistance);
+                }
+                this._repulseCells(c, c + cols, cutoff, minimumDistance);
+                if (col + 1 < cols) {
+                    this._repulseCells(c, c + cols + 1, cutoff, minimumDistance);
+                }
+            }
+        }
+    }
+};
+
+/**
+ * Apply the repulsing forces between the nodes of two grid cells which are
+ * within the cut-off distance.
+ * @param {Number} c1                Index of the first cell
+ * @param {Number} c2                Index of the second cell
+ * @param {Number} cutoff
+ * @param {Number} minimumDistance
+ * @private
+ */
+links.Network.Physics.prototype._repulseCells = function (c1, c2, cutoff, minimumDistance) {
+    var x = this.x, y = this.y,
+        cellStart = this.cellStart,
+        cellOrder = this.cellOrder,
+        cutoff2 = cutoff * cutoff;
+
+    for (var i = cellStart[c1], iMax = cellStart[c1 + 1]; i < iMax; i++) {
+        var a = cellOrder[i];
+        for (var j = cellStart[c2], jMax = cellStart[c2 + 1]; j < jMax; j++) {
+            var b = cellOrder[j],
+                dx = x[b] - x[a],
+                dy = y[b] - y[a];
+            if (dx * dx + dy * dy < cutoff2) {
+                this._repulse(a, b, minimumDistance);
+            }
+        }
+    }
+};
+
+/**
+ * Calculate the repulsing forces between nodes using a Barnes-Hut quadtree.
+ * Groups of nodes which are far away compared to the size of their region
+ * are approximated by a single node at their center. Regions further away
+ * than the cut-off distance of the repulsing force are skipped entirely.
+ * The costs are O(n log n) in the number of nodes.
+ * @param {Number} minimumDistance
+ * @private
+ */
+links.Network.Physics.prototype._repulseBarnesHut = function (minimumDistance) {
+    var x = this.x, y = this.y, fx = this.fx, fy = this.fy,
+        count = this.count,
+        steepness = 10, // higher value gives steeper slope of the force around the given minimumDistance
+        cutoff2 = Math.pow(minimumDistance * links.Network.Physics.CUTOFF, 2),
+        theta = 0.5; // accuracy: smaller values are more accurate and slower
+
+    if (count == 0) {
+        return;
+    }
+
+    var tree = this.tree;
+    tree.build(x, y, count);
+
+    var order = tree.order,
+        left = tree.left, top = tree.top, size = tree.size,
+        cx = tree.x, cy = tree.y,
+        start = tree.start, end = tree.end,
+        child = tree.child, childCount = tree.childCount,
+        stack = tree.stack;
+
+    for (var a = 0; a < count; a++) {
+        var xa = x[a],
+            ya = y[a],
+            sfx = 0,
+            sfy = 0,
+            sp = 0;
+
+        stack[sp++] = 0; // root
+        while (sp > 0) {
+            var r = stack[--sp];
+
+            // distance from the node to the bounding box of the region
+            var bx = Math.max(left[r] - xa, 0, xa - left[r] - size[r]),
+                by = Math.max(top[r] - ya, 0, ya - top[r] - size[r]);
+            if (bx * bx + by * by > cutoff2) {
+                continue;
+            }
+
+            var dx, dy, distance, repulsingforce;
+            if (child[r] != -1) {
+                dx = cx[r] - xa;
+                dy = cy[r] - ya;
+                distance = Math.sqrt(dx * dx + dy * dy);
+                if (size[r] < theta * distance) {
+                    // approximate the region by its center
+                    repulsingforce = (end[r] - start[r]) /
+                        (1 + Math.exp((distance / minimumDistance - 1) * steepness));
+                    sfx -= dx / distance * repulsingforce;
+                    sfy -= dy / distance * repulsingforce;
+                }
+                else {
+                    // open the region
+                    for (var c = child[r], cMax = c + childCount[r]; c < cMax; c++) {
+                        stack[sp++] = c;
+                    }
+                }
+            }
+            else {
+                // leaf, calculate the forces with each of its nodes
+                for (var i = start[r], iMax = end[r]; i < iMax; i++) {
+                    var b = order[i];
+                    if (b != a) {
+                        dx = x[b] - xa;
+                        dy = y[b] - ya;
+                        distance = Math.sqrt(dx * dx + dy * dy);
+                        repulsingforce = 1 / (1 + Math.exp((distance / minimumDistance - 1) * steepness));
+                        if (distance > 0) {
+                            sfx -= dx / distance * repulsingforce;
+                            sfy -= dy / distance * repulsingforce;
+                        }
+                        else {
+                            // push nodes at the same position apart
+                            // in opposite directions
+                            sfx += (a < b) ? -repulsingforce : repulsingforce;
+                        }
+                    }
+                }
+            }
+        }
+
+        fx[a] += sfx;
+        fy[a] += sfy;
+    }
+};
+
+/**
+ * Perform one discrete step for all nodes
+ * @param {number} interval    Time interval in seconds
+ */
+links.Network.Physics.prototype.step = function (interval) {
+    var x = this.x, y = this.y, vx = this.vx, vy = this.vy,
+        fx = this.fx, fy = this.fy, mass = this.mass, damping = this.damping,
+        xFixed = this.xFixed, yFixed = this.yFixed;
+
+    for (var n = 0, nMax = this.count; n < nMax; n++) {
+        if (!xFixed[n]) {
+            var ax = (fx[n] - damping[n] * vx[n]) / mass[n]; // acceleration
+            vx[n] += ax / interval;                         // velocity
+            x[n] += vx[n] / interval;                       // position
+        }
+
+        if (!yFixed[n]) {
+            var ay = (fy[n] - damping[n] * vy[n]) / mass[n]; // acceleration
+            vy[n] += ay / interval;                         // velocity
+            y[n] += vy[n] / interval;                       // position
+        }
+    }
+};
+
+/**
+ * Check if any of the nodes is still moving
+ * @param {number} vmin      the minimum velocity considered as "moving"
+ * @param {number} minForce  the minimum force considered as "moving"
+ * @return {boolean}         true if moving, false if non of the nodes is moving
+ */
+links.Network.Physics.prototype.isMoving = function (vmin, minForce) {
+    var vx = this.vx, vy = this.vy, fx = this.fx, fy = this.fy,
+        xFixed = this.xFixed, yFixed = this.yFixed;
+
+    for (var n = 0, nMax = this.count; n < nMax; n++) {
+        if (Math.abs(vx[n]) > vmin || Math.abs(vy[n]) > vmin ||
+                (!xFixed[n] && Math.abs(fx[n]) > minForce) ||
+                (!yFixed[n] && Math.abs(fy[n]) > minForce)) {
+            return true;
+        }
+    }
+    return false;
+};
+
+/**
+ * Calculate the total kinetic energy of the nodes
+ * @return {number} energy
+ */
+links.Network.Physics.prototype.getEnergy = function () {
+    var vx = this.vx, vy = this.vy, mass = this.mass,
+        xFixed = this.xFixed, yFixed = this.yFixed,
+        energy = 0;
+
+    for (var n = 0, nMax = this.count; n < nMax; n++) {
+        var v2 = (xFixed[n] ? 0 : vx[n] * vx[n]) + (yFixed[n] ? 0 : vy[n] * vy[n]);
+        energy += 0.5 * mass[n] * v2;
+    }
+    return energy;
+};
+
+/**
+ * Check whether the average kinetic energy of the nodes is below a
+ * threshold
+ * @param {number} minEnergy  the average kinetic energy per node considered
+ *                            as stable
+ * @return {boolean}          true if stable
+ */
+links.Network.Physics.prototype.isStable = function (minEnergy) {
+    return this.getEnergy() <= minEnergy * this.count;
+};
+
+/**
+ * Simulate steps until the nodes are stable, or until the maximum number of
+ * steps or the maximum duration is reached.
+ * @param {Object} params   Object with parameters gx, gy (center of
+ *                          gravity), minimumDistance, solver, interval,
+ *                          vmin, minForce, minEnergy, iterations (the
+ *                          maximum number of steps) and timeout (maximum
+ *                          duration in ms, no limit when 0)
+ * @return {Object} stats   Object with the number of iterations, the
+ *                          elapsed time in ms, the final kinetic energy, and
+ *                          whether the nodes are stable
+ */
+links.Network.Physics.prototype.simulate = function (params) {
+    var start = new Date().valueOf(),
+        deadline = params.timeout ? start + params.timeout : Infinity,
+        iterations = 0,
+        stable = false;
+
+    while (!stable && iterations < params.iterations) {
+        this.calculateForces(params.gx, params.gy, params.minimumDistance, params.solver);
+        this.step(params.interval);
+        stable = !this.isMoving(params.vmin, params.minForce) ||
+            this.isStable(params.minEnergy);
+        iterations++;
+
+        // reading the time is relatively expensive, check every 10 steps
+        if (iterations % 10 == 0 && new Date().valueOf() >= deadline) {
+            break;
+        }
+    }
+
+    return {
+        'iterations': iterations,
+        'time': new Date().valueOf() - start,
+        'energy': this.getEnergy(),
+        'stable': stable
+    };
+};
+
+/**
+ * The distance, relative to the minimum distance between nodes, beyond which
+ * the repulsing force is negligible. Used by the grid and Barnes-Hut solvers.
+ */
+links.Network.Physics.CUTOFF = 2.5;
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class PhysicsWorker
+ *
+ * Runs the force simulation in a Web Worker, so the simulation does not block
+ * the user interface. The worker is created from the source code of the
+ * Physics and QuadTree classes, so no separate script file is needed. The
+ * arrays of the simulation are transferred to the worker and back without
+ * copying.
+ */
+links.Network.PhysicsWorker = function () {
+    var source = links.Network.PhysicsWorker._createSource();
+    var blob = new Blob([source], {'type': 'application/javascript'});
+    this.url = URL.createObjectURL(blob);
+    this.worker = new Worker(this.url);
+    this.callbacks = {};
+    this.id = 0;
+
+    var me = this;
+    this.worker.onmessage = function (event) {
+        var callback = me.callbacks[event.data.id];
+        delete me.callbacks[event.data.id];
+        if (callback) {
+            callback(event.data);
+        }
+    };
+};
+
+/**
+ * Check whether the browser supports running the simulation in a worker
+ * @return {boolean} supported
+ */
+links.Network.PhysicsWorker.isSupported = function () {
+    return (typeof Worker !== 'undefined' && typeof Blob !== 'undefined' &&
+        typeof URL !== 'undefined' && typeof Float64Array !== 'undefined');
+};
+
+/**
+ * Create the source code of the worker
+ * @return {String} source
+ * @private
+ */
+links.Network.PhysicsWorker._createSource = function () {
+    var lines = ['var links = {"Network": {}};'];
+
+    var addClass = function (name, constructor) {
+        lines.push(name + ' = ' + constructor.toString() + ';');
+        for (var prop in constructor) {
+            if (constructor.hasOwnProperty(prop) && typeof constructor[prop] !== 'function') {
+                lines.push(name + '.' + prop + ' = ' + JSON.stringify(constructor[prop]) + ';');
+            }
+        }
+        for (prop in constructor.prototype) {
+            if (constructor.prototype.hasOwnProperty(prop)) {
+                lines.push(name + '.prototype.' + prop + ' = ' +
+                    constructor.prototype[prop].toString() + ';');
+            }
+        }
+    };
+
+    lines.push('links.Network.createFloatArray = ' + links.Network.createFloatArray.toString() + ';');
+    lines.push('links.Network.createIntArray = ' + links.Network.createIntArray.toString() + ';');
+    addClass('links.Network.Physics', links.Network.Physics);
+    addClass('links.Network.QuadTree', links.Network.QuadTree);
+    lines.push('links.Network.PhysicsWorker = {"getTransferables": ' +
+        links.Network.PhysicsWorker.getTransferables.toString() + '};');
+    lines.push('(' + links.Network.PhysicsWorker._main.toString() + ')();');
+
+    return lines.join('\n');
+};
+
+/**
+ * The main function of the worker. Each message contains the state of the
+ * simulation and its parameters. The worker runs the given number of steps,
+ * or until the nodes are not moving anymore, and returns the new state.
+ * @private
+ */
+links.Network.PhysicsWorker._main = function () {
+    var physics = new links.Network.Physics();
+
+    self.onmessage = function (event) {
+        var params = event.data;
+        physics.setState(params.state);
+
+        var stats = physics.simulate(params);
+
+        var state = physics.getState();
+        self.postMessage({
+            'id': params.id,
+            'state': state,
+            'stats': stats
+        }, links.Network.PhysicsWorker.getTransferables(state));
+    };
+};
+
+/**
+ * Get the buffers of the arrays of a simulation state, which can be
+ * transferred to or from a worker.
+ * @param {Object} state
+ * @return {ArrayBuffer[]} buffers
+ */
+links.Network.PhysicsWorker.getTransferables = function (state) {
+    var buffers = [];
+    for (var prop in state) {
+        if (state.hasOwnProperty(prop) && state[prop] && state[prop].buffer) {
+            buffers.push(state[prop].buffer);
+        }
+    }
+    return buffers;
+};
+
+/**
+ * Simulate the nodes in the worker. The arrays of the physics are
+ * transferred to the worker, and are not usable until the callback is
+ * invoked, which puts the new arrays in the physics.
+ * @param {links.Network.Physics} physics
+ * @param {Object} params      The parameters of the simulation, see
+ *                             links.Network.Physics.simulate
+ * @param {function} callback  Invoked as callback(stats), with the
+ *                             statistics returned by
+ *                             links.Network.Physics.simulate
+ */
+links.Network.PhysicsWorker.prototype.simulate = function (physics, params, callback) {
+    var id = this.id++;
+    this.callbacks[id] = function (result) {
+        physics.setState(result.state);
+        callback(result.stats);
+    };
+
+    // pass all parameters, including the stop criteria minEnergy and timeout
+    var message = {};
+    for (var prop in params) {
+        if (params.hasOwnProperty(prop)) {
+            message[prop] = params[prop];
+        }
+    }
+    var state = physics.getState();
+    message.id = id;
+    message.state = state;
+    this.worker.postMessage(message, links.Network.PhysicsWorker.getTransferables(state));
+};
+
+/**
+ * Terminate the worker
+ */
+links.Network.PhysicsWorker.prototype.terminate = function () {
+    this.worker.terminate();
+    URL.revokeObjectURL(this.url);
+    this.callbacks = {};
+};
+
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class QuadTree
+ *
+ * A quadtree over a set of points, used to find points near a location.
+ * The tree is stored in flat arrays and can be rebuilt without allocating
+ * new objects. Region 0 is the root. Each region has a square bounding box
+ * (left, top, size), the center of its points (x, y), and a range
+ * [start, end) in the array order, which contains the indexes of the points
+ * sorted by region. A region is either a leaf (child is -1) or has
+ * childCount child regions stored consecutively from index child.
+ */
+links.Network.QuadTree = function () {
+    this.capacity = 0;  // number of regions allocated
+    this.count = 0;     // number of regions in use
+    this.order = links.Network.createIntArray(0);
+    this.stack = links.Network.createIntArray(4 * (links.Network.QuadTree.MAX_DEPTH + 1));
+    this.bounds = links.Network.createIntArray(5);
+    this._grow(64);
+};
+
+links.Network.QuadTree.MAX_LEAF_SIZE = 4;
+links.Network.QuadTree.MAX_DEPTH = 20; // prevents endless splitting of points at the same location
+
+/**
+ * Increase the number of regions which can be stored
+ * @param {Number} capacity
+ * @private
+ */
+links.Network.QuadTree.prototype._grow = function (capacity) {
+    var me = this;
+    var copy = function (array, create) {
+        var grown = create(capacity);
+        for (var i = 0; i < me.count; i++) {
+            grown[i] = array[i];
+        }
+        return grown;
+    };
+
+    var createFloatArray = links.Network.createFloatArray,
+        createIntArray = links.Network.createIntArray;
+    this.left = copy(this.left, createFloatArray);
+    this.top = copy(this.top, createFloatArray);
+    this.size = copy(this.size, createFloatArray);
+    this.x = copy(this.x, createFloatArray);
+    this.y = copy(this.y, createFloatArray);
+    this.start = copy(this.start, createIntArray);
+    this.end = copy(this.end, createIntArray);
+    this.child = copy(this.child, createIntArray);
+    this.childCount = copy(this.childCount, createIntArray);
+    this.capacity = capacity;
+};
+
+/**
+ * Build the tree for a set of points
+ * @param {Float64Array | Number[]} x      Horizontal positions of the points
+ * @param {Float64Array | Number[]} y      Vertical positions of the points
+ * @param {Number} count                   Number of points
+ */
+links.Network.QuadTree.prototype.build = function (x, y, count) {
+    if (this.order.length < count) {
+        this.order = links.Network.createIntArray(count);
+    }
+
+    var left = Infinity,
+        top = Infinity,
+        right = -Infinity,
+        bottom = -Infinity;
+    for (var i = 0; i < count; i++) {
+        this.order[i] = i;
+        left = Math.min(left, x[i]);
+        top = Math.min(top, y[i]);
+        right = Math.max(right, x[i]);
+        bottom = Math.max(bottom, y[i]);
+    }
+    if (count == 0) {
+        left = top = 0;
+    }
+
+    this.count = 1;
+    this.left[0] = left;
+    this.top[0] = top;
+    this.size[0] = Math.max(right - left, bottom - top, 1); // square
+    this.start[0] = 0;
+    this.end[0] = count;
+    this._split(0, x, y, 0);
+};
+
+/**
+ * Calculate the center of a region, and split it in child regions when it
+ * contains too many points.
+ * @param {Number} r       Index of the region
+ * @param {Float64Array | Number[]} x
+ * @param {Float64Array | Number[]} y
+ * @param {Number} depth
+ * @private
+ */
+links.Network.QuadTree.prototype._split = function (r, x, y, depth) {
+    var order = this.order,
+        start = this.start[r],
+        end = this.end[r],
+        sx = 0,
+        sy = 0,
+        i;
+
+    for (i = start; i < end; i++) {
+        sx += x[order[i]];
+        sy += y[order[i]];
+    }
+    var half = this.size[r] / 2,
+        midX = this.left[r] + half,
+        midY = this.top[r] + half;
+    this.x[r] = (end > start) ? sx / (end - start) : midX;
+    this.y[r] = (end > start) ? sy / (end - start) : midY;
+
+    if (end - start <= links.Network.QuadTree.MAX_LEAF_SIZE ||
+            depth >= links.Network.QuadTree.MAX_DEPTH) {
+        this.child[r] = -1;
+        this.childCount[r] = 0;
+        return;
+    }
+
+    // sort the points in four quadrants: top left, top right,
+    // bottom left, bottom right
+    var middle = this._partition(y, start, end, midY),
+        topMiddle = this._partition(x, start, middle, midX),
+        bottomMiddle = this._partition(x, middle, end, midX),
+        bounds = this.bounds;
+    bounds[0] = start;
+    bounds[1] = topMiddle;
+    bounds[2] = middle;
+    bounds[3] = bottomMiddle;
+    bounds[4] = end;
+
+    var first = this.count,
+        q;
+    for (q = 0; q < 4; q++) {
+        if (bounds[q + 1] > bounds[q]) {
+            if (this.count >= this.capacity) {
+                this._grow(2 * this.capacity);
+            }
+            var c = this.count++;
+            this.left[c] = (q % 2 == 0) ? this.left[r] : midX;
+            this.top[c] = (q < 2) ? this.top[r] : midY;
+            this.size[c] = half;
+            this.start[c] = bounds[q];
+            this.end[c] = bounds[q + 1];
+        }
+    }
+    this.child[r] = first;
+    this.childCount[r] = this.count - first;
+
+    for (var c2 = first, cMax = this.count; c2 < cMax; c2++) {
+        this._split(c2, x, y, depth + 1);
+    }
+};
+
+/**
+ * Reorder a range of the points, such that the points with a coordinate
+ * smaller than given value come first.
+ * @param {Float64Array | Number[]} coords   The x or y positions
+ * @param {Number} start
+ * @param {Number} end
+ * @param {Number} value
+ * @return {Number} middle   Index of the first point with a coordinate equal
+ *                           to or larger than value
+ * @private
+ */
+links.Network.QuadTree.prototype._partition = function (coords, start, end, value) {
+    var order = this.order,
+        i = start,
+        j = end - 1;
+    while (i <= j) {
+        if (coords[order[i]] < value) {
+            i++;
+        }
+        else {
+            var tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+            j--;
+        }
+    }
+    return i;
+};
+
+/**
+ * Find the points located inside a rectangle
+ * @param {Float64Array | Number[]} x   The x positions used to build the tree
+ * @param {Float64Array | Number[]} y   The y positions used to build the tree
+ * @param {Number} left
+ * @param {Number} top
+ * @param {Number} right
+ * @param {Number} bottom
+ * @param {Number[]} result   Array where the indexes of the found points are
+ *                            appended, in no particular order
+ */
+links.Network.QuadTree.prototype.query = function (x, y, left, top, right, bottom, result) {
+    if (this.end[0] == 0) {
+        return;
+    }
+
+    var order = this.order,
+        stack = this.stack,
+        sp = 0;
+    stack[sp++] = 0; // root
+    while (sp > 0) {
+        var r = stack[--sp];
+        if (this.left[r] > right || this.left[r] + this.size[r] < left ||
+                this.top[r] > bottom || this.top[r] + this.size[r] < top) {
+            continue;
+        }
+
+        if (this.child[r] == -1) {
+            for (var i = this.start[r], iMax = this.end[r]; i < iMax; i++) {
+                var p = order[i];
+                if (x[p] >= left && x[p] <= right && y[p] >= top && y[p] <= bottom) {
+                    result.push(p);
+                }
+            }
+        }
+        else {
+            for (var c = this.child[r], cMax = c + this.childCount[r]; c < cMax; c++) {
+                stack[sp++] = c;
+            }
+        }
+    }
+};
+
+
+/**--------------------------------------------------------------------------**/
+
+
+/**
+ * @class Timeline
+ *
+ * An index on the rows of a table with nodes, links, or packages, sorted by
+ * their timestamp. The timeline keeps a cursor at the current timestamp, so
+ * when the timestamp changes, only the rows crossed since the previous
+ * timestamp need to be applied. Rows are also grouped by id, in table order.
+ * @param {Object[]} table      Array with the rows
+ * @param {function} [filter]   Optional function(properties) returning false
+ *                              for rows which must not be indexed by time
+ */
+links.Network.Timeline = function (table, filter) {
+    this.table = table;
+    this.times = [];    // sorted timestamps
+    this.rows = [];     // the row numbers belonging to the timestamps
+    this.groups = {};   // row numbers per id, in table order
+    this.items = [];    // the created objects per row, for rows without id
+
+    var entries = [];
+    for (var row = 0, rowCount = table.length; row < rowCount; row++) {
+        var properties = table[row];
+        var timestamp = properties.timestamp;
+        if (timestamp != undefined && (!filter || filter(properties))) {
+            entries.push({'time': timestamp.valueOf(), 'row': row});
+        }
+
+        var id = properties.id;
+        if (id !== undefined) {
+            if (Object.prototype.hasOwnProperty.call(this.groups, id)) {
+                this.groups[id].push(row);
+            }
+            else {
+                this.groups[id] = [row];
+            }
+        }
+    }
+
+    entries.sort(function (a, b) {
+        return (a.time > b.time) ? 1 : (a.time < b.time) ? -1 : (a.row - b.row);
+    });
+    for (var i = 0, iMax = entries.length; i < iMax; i++) {
+        this.times.push(entries[i].time);
+        this.rows.push(entries[i].row);
+    }
+
+    // initially, all rows are applied
+    this.timestamp = undefined;
+    this.cursor = this.times.length;
+};
+
+/**
+ * Find the number of rows with a timestamp smaller than or equal to the
+ * given timestamp (binary search)
+ * @param {Date | Number} [timestamp]   If undefined, all rows are counted
+ * @return {Number} count
+ */
+links.Network.Timeline.prototype.count = function (timestamp) {
+    if (timestamp === undefined) {
+        return this.times.length;
+    }
+
+    var time = timestamp.valueOf(),
+        times = this.times,
+        low = 0,
+        high = times.length;
+    while (low < high) {
+        var middle = (low + high) >>> 1;
+        if (times[middle] <= time) {
+            low = middle + 1;
+        }
+        else {
+            high = middle;
+        }
+    }
+    return low;
+};
+
+/**
+ * Move the cursor to a new timestamp
+ * @param {Date | Number} [timestamp]   If undefined, all rows are applied
+ * @return {Number[]} rows   The row numbers with a timestamp between the
+ *                           previous and the new timestamp, in table order
+ */
+links.Network.Timeline.prototype.move = function (timestamp) {
+    var cursor = this.count(timestamp);
+    var start = Math.min(cursor, this.cursor),
+        end = Math.max(cursor, this.cursor);
+    var rows = this.rows.slice(start, end);
+    rows.sort(function (a, b) {
+        return a - b;
+    });
+
+    this.timestamp = timestamp;
+    this.cursor = cursor;
+    return rows;
+};
+
+/**
+ * Check whether a row is visible at a timestamp
+ * @param {Object} properties
+ * @param {Date | Number} [timestamp]   If undefined, all rows are visible
+ * @return {boolean} visible
+ */
+links.Network.Timeline.isVisible = function (properties, timestamp) {
+    var ts = properties.timestamp;
+    return (ts == undefined || timestamp === undefined || ts.valueOf() <= timestamp.valueOf());
+};
+
+
+
 /**--------------------------------------------------------------------------**/
 
 